@@ -0,0 +1,20 @@
+#!/bin/bash
+# Runs the JMH benchmarks against the current server code
+# Results are written as JSON to 'target/jmh-result.json', so runs can be compared for regressions
+# Extra arguments are passed to JMH, e.g. './runBenchmarks.sh -c TaskList' or './runBenchmarks.sh -c -f 0 -wi 1 -i 1'
+
+# Compile the server and the benchmarks if there is the compilation flag
+if [[ "$1" == "-c" ]]; then
+        shift
+        echo "Compiling server and benchmarks..."
+        echo
+        (cd ../tasker-server && mvn -q clean install -DskipTests) || exit 1
+        mvn -q clean package || exit 1
+fi
+
+if [[ ! -f target/benchmarks.jar ]]; then
+        echo "No 'target/benchmarks.jar' found. Please compile first with the -c flag"
+        exit 1
+fi
+
+java -jar target/benchmarks.jar -rf json -rff target/jmh-result.json "$@"
@@ -0,0 +1,20 @@
+#!/bin/bash
+# Boots the server on the embedded profile and replays a load scenario against it
+# Histograms are written as '.hgrm' files to 'target/load'. Extra arguments are passed to the load generator,
+# e.g. './runLoad.sh -c --users=500 --tasks=100 --duration=60s --threading=virtual --storage=memory'
+
+# Compile the server and the load generator if there is the compilation flag
+if [[ "$1" == "-c" ]]; then
+        shift
+        echo "Compiling server and load generator..."
+        echo
+        (cd ../tasker-server && mvn -q clean install -DskipTests) || exit 1
+        mvn -q clean package || exit 1
+fi
+
+if [[ ! -f target/benchmarks.jar ]]; then
+        echo "No 'target/benchmarks.jar' found. Please compile first with the -c flag"
+        exit 1
+fi
+
+java -cp target/benchmarks.jar tasker.benchmarks.load.LoadGenerator "$@"
@@ -0,0 +1,52 @@
+package tasker.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import tasker.api.utils.Utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session token creation and validation, as done on every login and every authenticated request
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthTokenBenchmark {
+
+    /** Constants */
+    public static final String USERNAME = "bench";
+
+    /** Variables */
+    private String token;
+    private String forgedToken;
+
+
+    @Setup
+    public void setup() {
+        token = "Bearer " + Utils.createAuthToken(USERNAME, EmbeddedTasker.JWT_SECRET);
+
+        // Tampered signatures are never cached, so every call pays for the full verification
+        char[] chars = token.toCharArray();
+        int index = chars.length - 10;
+        chars[index] = chars[index] == 'A' ? 'B' : 'A';
+        forgedToken = new String(chars);
+    }
+
+    @Benchmark
+    public String createAuthToken() {
+        return Utils.createAuthToken(USERNAME, EmbeddedTasker.JWT_SECRET);
+    }
+
+    @Benchmark
+    public boolean validateAuthToken() {
+        return Utils.validateAuthToken(token, EmbeddedTasker.JWT_SECRET, USERNAME);
+    }
+
+    @Benchmark
+    public boolean validateForgedAuthToken() {
+        return Utils.validateAuthToken(forgedToken, EmbeddedTasker.JWT_SECRET, USERNAME);
+    }
+}
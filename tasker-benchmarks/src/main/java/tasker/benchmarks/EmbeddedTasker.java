@@ -0,0 +1,60 @@
+package tasker.benchmarks;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import tasker.TaskerServer;
+
+import java.util.Arrays;
+
+/**
+ * Boots the server backed by an in-memory database ('embedded' profile) or by its in-memory storage ('memory' profile).
+ * The in-memory storage is not persisted, so every run starts empty
+ */
+public final class EmbeddedTasker {
+
+    /** Constants */
+    public static final String EMBEDDED = "embedded";
+    public static final String MEMORY = "memory";
+    public static final String JWT_SECRET = "c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0";
+    public static final String NO_PERSISTENCE = "--tasker.storage.directory=";
+    public static final String NO_RATE_LIMITS = "--tasker.rate-limits.enabled=false";
+
+
+    private EmbeddedTasker() {}
+
+    /**
+     * Starts the application context without the web server
+     * @param storage the storage profile, 'embedded' or 'memory'
+     */
+    public static ConfigurableApplicationContext start(String storage) {
+        return builder(storage)
+                .web(WebApplicationType.NONE)
+                .run(NO_PERSISTENCE);
+    }
+
+    /**
+     * Starts the application context with the web server on a random port. Rate limits are off, since every
+     * simulated user comes from the same address
+     * @param storage the storage profile, 'embedded' or 'memory'
+     * @param args extra server properties, in '--name=value' form
+     */
+    public static ConfigurableApplicationContext startServer(String storage, String... args) {
+        String[] serverArgs = Arrays.copyOf(args, args.length + 3);
+        serverArgs[args.length] = "--server.port=0";
+        serverArgs[args.length + 1] = NO_PERSISTENCE;
+        serverArgs[args.length + 2] = NO_RATE_LIMITS;
+        return builder(storage).run(serverArgs);
+    }
+
+    private static SpringApplicationBuilder builder(String storage) {
+        return new SpringApplicationBuilder(TaskerServer.class)
+                .profiles(storage)
+                .logStartupInfo(false)
+                .properties("jwt.secret=" + JWT_SECRET, "logging.level.root=WARN");
+    }
+
+    public static int port(ConfigurableApplicationContext context) {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+}
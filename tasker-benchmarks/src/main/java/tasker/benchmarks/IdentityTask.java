@@ -0,0 +1,32 @@
+package tasker.benchmarks;
+
+import jakarta.persistence.*;
+
+/**
+ * The task table mapped with the database-generated ids Task used before its pooled generator, for comparing insert
+ * throughput. Found by the server's entity scan, as it lives under the 'tasker' package
+ */
+@Entity
+@Table(name = "task")
+public class IdentityTask {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String description;
+    private Integer priority;
+    private String username;
+
+    public IdentityTask() {
+    }
+
+    public IdentityTask(String description, Integer priority, String username) {
+        this.description = description;
+        this.priority = priority;
+        this.username = username;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,54 @@
+package tasker.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import tasker.api.models.TaskModel;
+import tasker.api.models.UserModel;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request data validation, for both complete models and models with an empty field
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModelValidationBenchmark {
+
+    /** Variables */
+    private UserModel user;
+    private UserModel corruptUser;
+    private TaskModel task;
+    private TaskModel corruptTask;
+
+
+    @Setup
+    public void setup() {
+        user = new UserModel("bench", "secret1", "bench@tasker.com", "Bench", "Mark");
+        corruptUser = new UserModel("bench", "secret1", "bench@tasker.com", "Bench", "   ");
+        task = new TaskModel(1L, "Write the benchmarks", 2);
+        corruptTask = new TaskModel(1L, "", 2);
+    }
+
+    @Benchmark
+    public boolean userModelIsDataCorrupt() {
+        return user.isDataCorrupt();
+    }
+
+    @Benchmark
+    public boolean corruptUserModelIsDataCorrupt() {
+        return corruptUser.isDataCorrupt();
+    }
+
+    @Benchmark
+    public boolean taskModelIsDataCorrupt() {
+        return task.isDataCorrupt();
+    }
+
+    @Benchmark
+    public boolean corruptTaskModelIsDataCorrupt() {
+        return corruptTask.isDataCorrupt();
+    }
+}
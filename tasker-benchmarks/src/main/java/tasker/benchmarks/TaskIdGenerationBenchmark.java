@@ -0,0 +1,81 @@
+package tasker.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tasker.api.resources.Task;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Task inserts against the embedded database with the pooled id generator Task uses, and with the IDENTITY ids it
+ * used before ({@link IdentityTask}), one task per transaction and a batch of tasks per transaction. IDENTITY needs
+ * the row inserted to learn its id, so Hibernate cannot batch those inserts. The embedded database has no network
+ * round trips, which are what unbatched inserts cost against MySQL. Scores are per inserted task
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskIdGenerationBenchmark {
+
+    /** Constants */
+    public static final String USERNAME = "bench";
+    public static final String POOLED = "pooled";
+    public static final String IDENTITY = "identity";
+    public static final int BATCH_SIZE = 50;
+
+    /** Variables */
+    @Param({POOLED, IDENTITY})
+    private String idGeneration;
+
+    private ConfigurableApplicationContext context;
+    private EntityManager entityManager;
+    private TransactionTemplate transaction;
+    private Supplier<Object> newTask;
+
+
+    @Setup
+    public void setup() {
+        context = EmbeddedTasker.start(EmbeddedTasker.EMBEDDED);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        newTask = idGeneration.equals(IDENTITY)
+                ? () -> new IdentityTask("Task number 0", 0, USERNAME)
+                : () -> new Task(null, "Task number 0", 0, USERNAME);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object insertTask() {
+        return transaction.execute(status -> {
+            Object task = newTask.get();
+            entityManager.persist(task);
+            return task;
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public Object insertTaskBatch() {
+        return transaction.execute(status -> {
+            Object task = null;
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                task = newTask.get();
+                entityManager.persist(task);
+            }
+            return task;
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package tasker.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import tasker.api.exceptions.InvalidRequestDataException;
+import tasker.api.models.TaskBatchResult;
+import tasker.api.models.TaskMutation;
+import tasker.api.models.TaskOperation;
+import tasker.api.requests.tasks.BatchTaskOperation;
+import tasker.api.services.TaskerService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Task insertion against the embedded database and the in-memory storage, one task per transaction and a batch of
+ * tasks per transaction. Scores are per inserted task
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskInsertBenchmark {
+
+    /** Constants */
+    public static final String USERNAME = "bench";
+    public static final int BATCH_SIZE = 50;
+
+    /** Variables */
+    @Param({EmbeddedTasker.EMBEDDED, EmbeddedTasker.MEMORY})
+    private String storage;
+
+    private ConfigurableApplicationContext context;
+    private TaskerService taskerService;
+    private List<BatchTaskOperation> batch;
+
+
+    @Setup
+    public void setup() {
+        context = EmbeddedTasker.start(storage);
+        taskerService = context.getBean(TaskerService.class);
+
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(new BatchTaskOperation(TaskOperation.ADD, null, "Task number " + i, i % 5));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TaskMutation addTask() throws InvalidRequestDataException {
+        return taskerService.add(USERNAME, "Task number 0", 0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<TaskBatchResult> addTaskBatch() throws InvalidRequestDataException {
+        return taskerService.batch(USERNAME, batch);
+    }
+}
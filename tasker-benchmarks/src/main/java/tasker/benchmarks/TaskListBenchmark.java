@@ -0,0 +1,74 @@
+package tasker.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import tasker.api.exceptions.InvalidRequestDataException;
+import tasker.api.models.TaskOperation;
+import tasker.api.requests.tasks.BatchTaskOperation;
+import tasker.api.resources.Task;
+import tasker.api.services.TaskListCache;
+import tasker.api.services.TaskerService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 'TaskerService.getAllTasks' against the embedded database and the in-memory storage, served from the task list
+ * cache and loaded from storage. Lists above 'tasker.cache.max-entry-tasks' are never cached, so both cases load them
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskListBenchmark {
+
+    /** Constants */
+    public static final String USERNAME = "bench";
+
+    /** Variables */
+    @Param({"10", "1000", "100000"})
+    private int tasks;
+
+    @Param({EmbeddedTasker.EMBEDDED, EmbeddedTasker.MEMORY})
+    private String storage;
+
+    private ConfigurableApplicationContext context;
+    private TaskerService taskerService;
+    private TaskListCache taskListCache;
+
+
+    @Setup
+    public void setup() throws InvalidRequestDataException {
+        context = EmbeddedTasker.start(storage);
+        taskerService = context.getBean(TaskerService.class);
+        taskListCache = context.getBean(TaskListCache.class);
+
+        List<BatchTaskOperation> operations = new ArrayList<>(TaskerService.MAX_BATCH_OPERATIONS);
+        for (int i = 0; i < tasks; i++) {
+            operations.add(new BatchTaskOperation(TaskOperation.ADD, null, "Task number " + i, i % 5));
+            if (operations.size() == TaskerService.MAX_BATCH_OPERATIONS || i == tasks - 1) {
+                taskerService.batch(USERNAME, operations);
+                operations.clear();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Task> getAllTasksCached() {
+        return taskerService.getAllTasks(USERNAME);
+    }
+
+    @Benchmark
+    public List<Task> getAllTasksFromStorage() {
+        taskListCache.invalidate(USERNAME);
+        return taskerService.getAllTasks(USERNAME);
+    }
+}
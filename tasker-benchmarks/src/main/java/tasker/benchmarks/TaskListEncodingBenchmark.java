@@ -0,0 +1,118 @@
+package tasker.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import tasker.ResponseEncodings;
+import tasker.api.resources.Task;
+import tasker.api.responses.TaskListResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cost of writing the full task list response in each encoding the server offers, with and without gzip. The bytes
+ * sent on the wire for each case are reported as the 'wireBytes' secondary result, so they reach the JSON results
+ * along with the times
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskListEncodingBenchmark {
+
+    /** Constants */
+    public static final String JSON = "json";
+    public static final String SMILE = "smile";
+    public static final String CBOR = "cbor";
+    public static final String IDENTITY = "identity";
+    public static final String GZIP = "gzip";
+
+    /** Variables */
+    @Param({"1000", "100000"})
+    private int tasks;
+
+    @Param({JSON, SMILE, CBOR})
+    private String encoding;
+
+    @Param({IDENTITY, GZIP})
+    private String compression;
+
+    private ObjectMapper mapper;
+    private TaskListResponse response;
+
+
+    @Setup
+    public void setup() throws IOException {
+        mapper = switch (encoding) {
+            case SMILE -> ResponseEncodings.smileMapper();
+            case CBOR -> ResponseEncodings.cborMapper();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+
+        List<Task> list = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++) {
+            Task task = new Task();
+            task.setId((long) i + 1);
+            task.setUsername("bench");
+            task.setDescription("Task number " + i);
+            task.setPriority(i % 5);
+            list.add(task);
+        }
+        response = new TaskListResponse("Tasks were successfully retrieved", list);
+    }
+
+    @Benchmark
+    public byte[] encode(WireSize wireSize) throws IOException {
+        byte[] encoded = encode();
+        wireSize.record(encoded.length);
+        return encoded;
+    }
+
+    private byte[] encode() throws IOException {
+        byte[] body = mapper.writeValueAsBytes(response);
+        if (!GZIP.equals(compression)) {
+            return body;
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        }
+        return compressed.toByteArray();
+    }
+
+
+    /**
+     * Size of the encoded response, as a secondary result. JMH sums event counters over the iterations, so the size
+     * is only recorded during the first measurement iteration, and the result is the size of one response
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireSize {
+        public long wireBytes;
+        private boolean recording;
+        private boolean recorded;
+
+        @Setup(Level.Iteration)
+        public void startIteration(IterationParams iteration) {
+            wireBytes = 0;
+            recording = iteration.getType() == IterationType.MEASUREMENT && !recorded;
+            recorded |= recording;
+        }
+
+        void record(int bytes) {
+            if (recording) {
+                wireBytes = bytes;
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package tasker.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import tasker.api.resources.Task;
+import tasker.api.responses.TaskListResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the full task list response, with the same mapper defaults Spring Boot uses
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskListSerializationBenchmark {
+
+    /** Variables */
+    @Param({"10", "1000", "100000"})
+    private int tasks;
+
+    private ObjectMapper mapper;
+    private TaskListResponse response;
+
+
+    @Setup
+    public void setup() {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<Task> list = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++) {
+            Task task = new Task();
+            task.setUsername("bench");
+            task.setDescription("Task number " + i);
+            task.setPriority(i % 5);
+            list.add(task);
+        }
+        response = new TaskListResponse("Tasks were successfully retrieved", list);
+    }
+
+    @Benchmark
+    public byte[] serializeTaskList() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,115 @@
+package tasker.benchmarks.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import tasker.benchmarks.load.LoadScenario.Operation;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per operation latency histograms (in microseconds), error counts and throughput. Requests are only recorded
+ * between 'start' and 'stop', so the warmup is left out
+ */
+public class LatencyReport {
+
+    /** Constants */
+    public static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+    public static final int SIGNIFICANT_DIGITS = 3;
+    public static final double MICROS_PER_MILLI = 1000.0;
+
+    /** Variables */
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private volatile boolean recording;
+    private long startNanos;
+    private long elapsedNanos;
+
+
+    public LatencyReport() {
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentHistogram(MAX_LATENCY_MICROS, SIGNIFICANT_DIGITS));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public void start() {
+        startNanos = System.nanoTime();
+        recording = true;
+    }
+
+    public void stop() {
+        recording = false;
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Records a finished request
+     * @param operation the request's operation
+     * @param requestStartNanos when the request was sent, from 'System.nanoTime'
+     * @param success the request got a successful response
+     */
+    public void record(Operation operation, long requestStartNanos, boolean success) {
+        if (!recording) {
+            return;
+        }
+
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - requestStartNanos);
+        latencies.get(operation).recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+        if (!success) {
+            errors.get(operation).increment();
+        }
+    }
+
+    public void print(PrintStream out, String title) {
+        double seconds = elapsedNanos / 1e9;
+        long totalCount = 0;
+
+        out.println();
+        out.println("== " + title + " ==");
+        out.printf("%-10s %10s %8s %10s %9s %9s %9s %9s %9s%n", "operation", "count", "errors", "ops/s", "p50 ms", "p90 ms",
+                "p99 ms", "p99.9 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = latencies.get(operation);
+            long count = histogram.getTotalCount();
+            if (count == 0) {
+                continue;
+            }
+
+            totalCount += count;
+            out.printf(Locale.ROOT, "%-10s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", operation.name().toLowerCase(Locale.ROOT),
+                    count, errors.get(operation).sum(), count / seconds, millis(histogram, 50), millis(histogram, 90),
+                    millis(histogram, 99), millis(histogram, 99.9), histogram.getMaxValue() / MICROS_PER_MILLI);
+        }
+        out.printf(Locale.ROOT, "%-10s %10d %8s %10.1f%n", "total", totalCount, "", totalCount / seconds);
+    }
+
+    /**
+     * Writes each operation's percentile distribution as an '.hgrm' file, in milliseconds
+     */
+    public void write(Path directory, String prefix) throws IOException {
+        Files.createDirectories(directory);
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = latencies.get(operation);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+
+            Path file = directory.resolve(prefix + "-" + operation.name().toLowerCase(Locale.ROOT) + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+}
@@ -0,0 +1,144 @@
+package tasker.benchmarks.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+import tasker.benchmarks.EmbeddedTasker;
+
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Boots the server on an embedded storage and replays a scenario against it with many simulated users, then
+ * prints per operation throughput and latency percentiles. The histograms are also written as '.hgrm' files
+ * <p>
+ * Every user registers, logs in and seeds its tasks before the warmup starts, so only the steady state is recorded.
+ * The run fails if a user cannot be set up
+ * </p>
+ * <p>
+ * Options, all in '--name=value' form: 'scenario' (scenarios/mixed.jsonl), 'users' (100), 'tasks' initial tasks per
+ * user (0), 'warmup' (10s), 'duration' (30s), 'think-time' (0ms), 'threading' server request threads, one of
+ * 'platform', 'virtual' or 'both' (both), 'storage' profile, 'embedded' database or 'memory' (embedded),
+ * 'concurrency-limits' whether the server sheds load over its adaptive concurrency limits (false), and 'output'
+ * histogram directory (target/load)
+ * </p>
+ */
+public class LoadGenerator {
+
+    /** Constants */
+    public static final String PLATFORM = "platform";
+    public static final String VIRTUAL = "virtual";
+    public static final String BOTH = "both";
+
+    /** Variables */
+    private final LoadScenario scenario;
+    private final int users;
+    private final int initialTasks;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Duration thinkTime;
+    private final String storage;
+    private final boolean concurrencyLimits;
+    private final Path output;
+
+
+    public LoadGenerator(LoadScenario scenario, int users, int initialTasks, Duration warmup, Duration duration, Duration thinkTime,
+                         String storage, boolean concurrencyLimits, Path output) {
+        this.scenario = scenario;
+        this.users = users;
+        this.initialTasks = initialTasks;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.thinkTime = thinkTime;
+        this.storage = storage;
+        this.concurrencyLimits = concurrencyLimits;
+        this.output = output;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "true");
+        }
+
+        LoadGenerator generator = new LoadGenerator(
+                LoadScenario.read(Path.of(options.getOrDefault("scenario", "scenarios/mixed.jsonl"))),
+                Integer.parseInt(options.getOrDefault("users", "100")),
+                Integer.parseInt(options.getOrDefault("tasks", "0")),
+                DurationStyle.detectAndParse(options.getOrDefault("warmup", "10s")),
+                DurationStyle.detectAndParse(options.getOrDefault("duration", "30s")),
+                DurationStyle.detectAndParse(options.getOrDefault("think-time", "0ms")),
+                options.getOrDefault("storage", EmbeddedTasker.EMBEDDED),
+                Boolean.parseBoolean(options.getOrDefault("concurrency-limits", "false")),
+                Path.of(options.getOrDefault("output", "target/load")));
+
+        String threading = options.getOrDefault("threading", BOTH);
+        if (!threading.equals(VIRTUAL)) {
+            generator.run(false);
+        }
+        if (!threading.equals(PLATFORM)) {
+            generator.run(true);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Runs the scenario once against a fresh server
+     * @param virtualThreads whether the server handles requests on virtual threads
+     */
+    public void run(boolean virtualThreads) throws Exception {
+        String mode = virtualThreads ? VIRTUAL : PLATFORM;
+        ConfigurableApplicationContext context = EmbeddedTasker.startServer(storage, "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--tasker.concurrency.enabled=" + concurrencyLimits);
+
+        try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            String baseUrl = "http://localhost:" + EmbeddedTasker.port(context);
+            ObjectMapper mapper = new ObjectMapper();
+            LatencyReport report = new LatencyReport();
+            AtomicBoolean running = new AtomicBoolean(true);
+            CountDownLatch ready = new CountDownLatch(users);
+
+            // Client side users run on virtual threads, so they never bound the load sent to the server
+            List<Thread> threads = new ArrayList<>(users);
+            for (int i = 0; i < users; i++) {
+                SimulatedUser user = new SimulatedUser(client, mapper, baseUrl, scenario, report, running, ready, "user" + i,
+                        initialTasks, thinkTime, i);
+                threads.add(Thread.ofVirtual().name("load-user-" + i).start(user));
+            }
+
+            long setupStart = System.nanoTime();
+            ready.await();
+            if (!running.get()) {
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                throw new IllegalStateException("The users could not be set up, see the errors above");
+            }
+            System.out.printf("%d users set up in %.1fs%n", users, (System.nanoTime() - setupStart) / 1e9);
+
+            Thread.sleep(warmup);
+            report.start();
+            Thread.sleep(duration);
+            report.stop();
+
+            running.set(false);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            report.print(System.out, String.format("%s threads, %s storage, %d users, %d initial tasks each, %ds", mode,
+                    storage, users, initialTasks, duration.toSeconds()));
+            report.write(output, storage + "-" + mode);
+        } finally {
+            context.close();
+        }
+    }
+}
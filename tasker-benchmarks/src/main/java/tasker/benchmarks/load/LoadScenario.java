@@ -0,0 +1,62 @@
+package tasker.benchmarks.load;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Weighted mix of operations replayed by every simulated user. Scenario files are JSON Lines, with one step per
+ * line, e.g. '{"operation": "list", "weight": 40}'
+ * @param steps the operations and their weights
+ * @param totalWeight the sum of every step's weight
+ */
+public record LoadScenario(List<Step> steps, int totalWeight) {
+
+    public enum Operation { REGISTER, LOGIN, ADD, UPDATE, DELETE, LIST }
+
+    public record Step(Operation operation, int weight) {}
+
+
+    public static LoadScenario read(Path path) throws IOException {
+        ObjectMapper mapper = JsonMapper.builder().enable(MapperFeature.ACCEPT_CASE_INSENSITIVE_ENUMS).build();
+
+        List<Step> steps = new ArrayList<>();
+        int totalWeight = 0;
+        for (String line : Files.readAllLines(path)) {
+            if (line.isBlank()) {
+                continue;
+            }
+
+            Step step = mapper.readValue(line, Step.class);
+            if (step.operation() == null || step.weight() < 0) {
+                throw new IOException("Invalid scenario step: " + line);
+            }
+            steps.add(step);
+            totalWeight += step.weight();
+        }
+
+        if (totalWeight == 0) {
+            throw new IOException("The scenario '" + path + "' has no weighted steps");
+        }
+        return new LoadScenario(List.copyOf(steps), totalWeight);
+    }
+
+    public Operation pick(Random random) {
+        int target = random.nextInt(totalWeight);
+        for (Step step : steps) {
+            target -= step.weight();
+            if (target < 0) {
+                return step.operation();
+            }
+        }
+
+        return steps.get(steps.size() - 1).operation();
+    }
+}
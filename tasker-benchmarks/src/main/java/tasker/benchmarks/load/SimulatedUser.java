@@ -0,0 +1,246 @@
+package tasker.benchmarks.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import tasker.api.services.TaskerService;
+import tasker.benchmarks.load.LoadScenario.Operation;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One account replaying the scenario in a closed loop: each request is sent once the previous one answered and the
+ * think time passed. The account registers and logs in first, then seeds its initial tasks through the batch
+ * endpoint. The scenario only starts once every user is done with its setup. A setup request still failing after
+ * {@link #MAX_SETUP_ATTEMPTS} attempts stops the whole run, as the server is then unable to serve the scenario
+ */
+public class SimulatedUser implements Runnable {
+
+    /** Constants */
+    public static final String PASSWORD = "secret1";
+    public static final String PREFER_MINIMAL = "return=minimal";
+    public static final int MAX_SETUP_ATTEMPTS = 10;
+    public static final long SETUP_RETRY_MILLIS = 100;
+    public static final long MAX_SETUP_RETRY_MILLIS = 5000;
+
+    /** Variables */
+    private final HttpClient client;
+    private final ObjectMapper mapper;
+    private final String baseUrl;
+    private final LoadScenario scenario;
+    private final LatencyReport report;
+    private final AtomicBoolean running;
+    private final CountDownLatch ready;
+    private final String username;
+    private final int initialTasks;
+    private final Duration thinkTime;
+    private final Random random;
+    private final List<Long> taskIds = new ArrayList<>();
+    private String token;
+    private int registeredAccounts;
+
+
+    public SimulatedUser(HttpClient client, ObjectMapper mapper, String baseUrl, LoadScenario scenario, LatencyReport report,
+                         AtomicBoolean running, CountDownLatch ready, String username, int initialTasks, Duration thinkTime, long seed) {
+        this.client = client;
+        this.mapper = mapper;
+        this.baseUrl = baseUrl;
+        this.scenario = scenario;
+        this.report = report;
+        this.running = running;
+        this.ready = ready;
+        this.username = username;
+        this.initialTasks = initialTasks;
+        this.thinkTime = thinkTime;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public void run() {
+        try {
+            try {
+                // Password hashing is bounded on the server, so setup requests may be turned away with a 503
+                if (setUp("register", () -> register(username)) && setUp("log in", this::login)) {
+                    seedTasks();
+                }
+            } finally {
+                ready.countDown();
+            }
+
+            // Start the scenario together, otherwise its logins starve the users still setting up
+            ready.await();
+
+            while (running.get()) {
+                execute(scenario.pick(random));
+                if (!thinkTime.isZero()) {
+                    Thread.sleep(thinkTime);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void execute(Operation operation) throws InterruptedException {
+        switch (operation) {
+            case REGISTER -> register(username + "-" + ++registeredAccounts);
+            case LOGIN -> login();
+            case ADD -> add();
+            case UPDATE -> {
+                if (taskIds.isEmpty()) add(); else update();
+            }
+            case DELETE -> {
+                if (taskIds.isEmpty()) add(); else delete();
+            }
+            case LIST -> send(Operation.LIST, authorized("/tasker/" + username + "/tasks").GET());
+        }
+    }
+
+    private boolean register(String account) throws InterruptedException {
+        Map<String, Object> body = Map.of("username", account, "password", PASSWORD, "email", account + "@tasker.com",
+                "firstName", "Load", "lastName", "Test");
+        return send(Operation.REGISTER, request("/users/register").POST(json(body))) != null;
+    }
+
+    private boolean login() throws InterruptedException {
+        JsonNode response = send(Operation.LOGIN, request("/users/login").POST(json(Map.of("username", username, "password", PASSWORD))));
+        if (response == null) {
+            return false;
+        }
+
+        token = response.path("token").asText();
+        return true;
+    }
+
+    private void add() throws InterruptedException {
+        Map<String, Object> body = Map.of("description", "Task " + random.nextInt(), "priority", random.nextInt(5));
+        JsonNode response = send(Operation.ADD, authorized("/tasker/" + username + "/add").header("Prefer", PREFER_MINIMAL).POST(json(body)));
+        if (response != null) {
+            taskIds.add(response.path("task").path("id").asLong());
+        }
+    }
+
+    private void update() throws InterruptedException {
+        Map<String, Object> body = Map.of("id", randomTaskId(), "description", "Task " + random.nextInt(), "priority", random.nextInt(5));
+        send(Operation.UPDATE, authorized("/tasker/" + username + "/update").header("Prefer", PREFER_MINIMAL).PUT(json(body)));
+    }
+
+    private void delete() throws InterruptedException {
+        Long id = randomTaskId();
+        JsonNode response = send(Operation.DELETE, authorized("/tasker/" + username + "/delete?id=" + id).header("Prefer", PREFER_MINIMAL).DELETE());
+        if (response != null) {
+            taskIds.remove(id);
+        }
+    }
+
+    private void seedTasks() throws InterruptedException {
+        int remaining = initialTasks;
+        while (remaining > 0) {
+            int size = Math.min(remaining, TaskerService.MAX_BATCH_OPERATIONS);
+            if (!setUp("seed its tasks", () -> seedBatch(size))) {
+                return;
+            }
+            remaining -= size;
+        }
+    }
+
+    private boolean seedBatch(int size) throws InterruptedException {
+        List<Map<String, Object>> operations = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            operations.add(Map.of("operation", "ADD", "description", "Task " + random.nextInt(), "priority", random.nextInt(5)));
+        }
+
+        JsonNode response = send(null, authorized("/tasker/" + username + "/batch").POST(json(Map.of("operations", operations))));
+        if (response == null) {
+            return false;
+        }
+        response.path("results").forEach(result -> taskIds.add(result.path("mutation").path("task").path("id").asLong()));
+        return true;
+    }
+
+    /**
+     * Attempts a setup request until it succeeds, backing off between attempts. Once out of attempts, the run is
+     * stopped for every user, so none of them is left waiting for the others to be set up
+     * @param step what the request does, for the error printed when it keeps failing
+     * @return whether the request succeeded, false if the run stopped
+     */
+    private boolean setUp(String step, SetupRequest request) throws InterruptedException {
+        for (int attempt = 1; running.get(); attempt++) {
+            if (request.send()) {
+                return true;
+            }
+            if (attempt == MAX_SETUP_ATTEMPTS) {
+                System.err.printf("%s could not %s after %d attempts, stopping the run%n", username, step, attempt);
+                running.set(false);
+                return false;
+            }
+            backOff(attempt - 1);
+        }
+        return false;
+    }
+
+    /**
+     * Waits before retrying a setup request, exponentially longer on each attempt and with jitter, so the users do
+     * not retry in lockstep
+     */
+    private void backOff(int attempt) throws InterruptedException {
+        long millis = Math.min(SETUP_RETRY_MILLIS << Math.min(attempt, 10), MAX_SETUP_RETRY_MILLIS);
+        Thread.sleep(millis / 2 + random.nextLong(millis / 2 + 1));
+    }
+
+    private Long randomTaskId() {
+        return taskIds.get(random.nextInt(taskIds.size()));
+    }
+
+    /**
+     * Sends a request, recording its latency under the given operation unless it is null
+     * @return the parsed response body, or null if the request failed
+     */
+    private JsonNode send(Operation operation, HttpRequest.Builder builder) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+            boolean success = response.statusCode() < 400;
+            if (operation != null) {
+                report.record(operation, start, success);
+            }
+            return success ? mapper.readTree(response.body()) : null;
+        } catch (IOException e) {
+            if (operation != null) {
+                report.record(operation, start, false);
+            }
+            return null;
+        }
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).header("Content-Type", "application/json");
+    }
+
+    private HttpRequest.Builder authorized(String path) {
+        return request(path).header("Authorization", "Bearer " + token);
+    }
+
+    private HttpRequest.BodyPublisher json(Object body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+
+    private interface SetupRequest {
+        boolean send() throws InterruptedException;
+    }
+}
@@ -11,7 +11,7 @@ sigint_handler() {
 run() {
         if [[ ! -d target ]]; then
                 echo "No 'target' directory found. Please compile first with the -c flag"
-        elif [[ ! -f target/TaskerServer-1.0-SNAPSHOT.jar ]]; then
+        elif [[ ! -f target/TaskerServer-1.0-SNAPSHOT-exec.jar ]]; then
                 echo "No JAR file found in the 'target' directory. Please compile first with the -c flag"
         else
                 cd target
@@ -19,7 +19,7 @@ run() {
 		echo
 		echo Executing server...
 		echo
-                java -jar "TaskerServer-1.0-SNAPSHOT.jar"
+                java -jar "TaskerServer-1.0-SNAPSHOT-exec.jar"
         fi
 }
 
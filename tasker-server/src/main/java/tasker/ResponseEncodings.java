@@ -0,0 +1,48 @@
+package tasker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Encodings the responses can be sent in, besides JSON
+ * <p>
+ * Clients pick Smile ('application/x-jackson-smile') or CBOR ('application/cbor') with the 'Accept' header. Smile
+ * writes repeated strings, like the username of every task in a list, as back-references to their first copy. Each
+ * encoding of a task list is its own representation, with its own ETag suffix.
+ * Responses of every encoding above 'tasker.compression.min-response-size' are also compressed for clients sending
+ * 'Accept-Encoding: gzip', by the {@link tasker.filters.ResponseCompressionFilter}
+ * </p>
+ */
+@Configuration
+public class ResponseEncodings {
+
+    /** Constants */
+    public static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+
+    public static ObjectMapper smileMapper() {
+        return Jackson2ObjectMapperBuilder.smile()
+                .factory(SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build())
+                .build();
+    }
+
+    public static ObjectMapper cborMapper() {
+        return Jackson2ObjectMapperBuilder.cbor().build();
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileConverter() {
+        return new MappingJackson2SmileHttpMessageConverter(smileMapper());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborConverter() {
+        return new MappingJackson2CborHttpMessageConverter(cborMapper());
+    }
+}
@@ -1,18 +1,23 @@
 package tasker;
 
+import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import tasker.api.repositories.memory.MemoryTransactionManager;
 import tasker.api.utils.Shell;
 import tasker.api.utils.Utils;
 
-import javax.sql.DataSource;
 import java.io.Console;
 
 
 @SpringBootApplication
+@EnableScheduling
 public class TaskerServer {
     public record CredentialsRead(String username, String password) {}
 
@@ -25,10 +30,10 @@ public class TaskerServer {
     @Value("${spring.datasource.url}")
     String dbUrl;
 
-    @Value("${db.username}")
+    @Value("${db.username:}")
     String dbUsername;
 
-    @Value("${db.password}")
+    @Value("${db.password:}")
     String dbPassword;
 
 
@@ -64,8 +69,13 @@ public class TaskerServer {
         return new CredentialsRead(username, password);
     }
 
+    /**
+     * Builds the connection pool. Its 'spring.datasource.hikari.*' settings are bound after the credentials are set
+     */
     @Bean
-    public DataSource configureDb() {
+    @Profile("!" + MemoryTransactionManager.PROFILE)
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource configureDb() {
         boolean noCredentialsOnSecret = Utils.isStringNull(dbUsername) || Utils.isStringNull(dbPassword);
         String username = dbUsername;
         String password = dbPassword;
@@ -78,6 +88,7 @@ public class TaskerServer {
         }
 
         return DataSourceBuilder.create()
+                .type(HikariDataSource.class)
                 .url(dbUrl)
                 .username(username)
                 .password(password)
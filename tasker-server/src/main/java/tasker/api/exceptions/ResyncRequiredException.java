@@ -0,0 +1,7 @@
+package tasker.api.exceptions;
+
+public class ResyncRequiredException extends Exception {
+    public ResyncRequiredException(long since) {
+        super(String.format("The changes after revision %d are no longer retained", since));
+    }
+}
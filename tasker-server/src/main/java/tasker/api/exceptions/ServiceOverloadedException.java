@@ -0,0 +1,7 @@
+package tasker.api.exceptions;
+
+public class ServiceOverloadedException extends Exception {
+    public ServiceOverloadedException(String operation) {
+        super(String.format("The server is too busy to handle the '%s' operation. Try again later", operation));
+    }
+}
@@ -0,0 +1,7 @@
+package tasker.api.exceptions;
+
+public class TaskListChangedException extends Exception {
+    public TaskListChangedException(long expectedVersion) {
+        super(String.format("The task list is no longer at version %d", expectedVersion));
+    }
+}
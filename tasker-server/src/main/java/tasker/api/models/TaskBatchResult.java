@@ -0,0 +1,19 @@
+package tasker.api.models;
+
+/**
+ * Outcome of one operation of a task batch
+ * @param index the operation's position in the batch
+ * @param operation the operation's type
+ * @param error why the operation was skipped, or null if it was applied
+ * @param mutation the applied mutation, or null if it was skipped
+ */
+public record TaskBatchResult(int index, TaskOperation operation, String error, TaskMutation mutation) {
+
+    public static TaskBatchResult applied(int index, TaskMutation mutation) {
+        return new TaskBatchResult(index, mutation.getOperation(), null, mutation);
+    }
+
+    public static TaskBatchResult skipped(int index, TaskOperation operation, String error) {
+        return new TaskBatchResult(index, operation, error, null);
+    }
+}
@@ -0,0 +1,21 @@
+package tasker.api.models;
+
+import tasker.api.resources.Task;
+
+/**
+ * The latest change of one task in a change feed
+ * @param revision the list version of the task's latest change
+ * @param id the task's id
+ * @param deleted the task no longer exists (a tombstone)
+ * @param task the task's current state, or null if it was deleted
+ */
+public record TaskChange(long revision, long id, boolean deleted, Task task) {
+
+    public static TaskChange saved(long revision, Task task) {
+        return new TaskChange(revision, task.getId(), false, task);
+    }
+
+    public static TaskChange deleted(long revision, long id) {
+        return new TaskChange(revision, id, true, null);
+    }
+}
@@ -0,0 +1,11 @@
+package tasker.api.models;
+
+import java.util.List;
+
+/**
+ * The changes of a user's tasks after a given revision
+ * @param revision the revision to ask the following changes from
+ * @param changes one change per changed task, oldest first
+ */
+public record TaskChanges(long revision, List<TaskChange> changes) {
+}
@@ -0,0 +1,51 @@
+package tasker.api.models;
+
+import tasker.api.exceptions.InvalidRequestDataException;
+import tasker.api.resources.Task;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of a task inside a user's ordered task list (priority desc, description asc, id asc).
+ * <p>
+ * It is handed to clients as an opaque string, so they can only send it back to continue a listing
+ * </p>
+ */
+public record TaskCursor(Integer priority, String description, Long id) {
+
+    /** Constants */
+    private static final String SEPARATOR = ":";
+    private static final int FIELDS = 3;
+
+    public static TaskCursor after(Task task) {
+        return new TaskCursor(task.getPriority(), task.getDescription(), task.getId());
+    }
+
+    /**
+     * Decodes a cursor previously created by {@link #encode()}
+     * @param value the opaque cursor sent by the client
+     * @return the decoded cursor
+     * @throws InvalidRequestDataException the cursor was not created by the server or was tampered with
+     */
+    public static TaskCursor decode(String value) throws InvalidRequestDataException {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+
+            // Description goes last, since it may contain the separator itself
+            String[] fields = decoded.split(SEPARATOR, FIELDS);
+            if (fields.length != FIELDS) {
+                throw new InvalidRequestDataException("Task Cursor");
+            }
+
+            return new TaskCursor(Integer.valueOf(fields[0]), fields[2], Long.valueOf(fields[1]));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestDataException("Task Cursor");
+        }
+    }
+
+    public String encode() {
+        String raw = priority + SEPARATOR + id + SEPARATOR + description;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
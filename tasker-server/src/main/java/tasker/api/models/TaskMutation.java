@@ -0,0 +1,33 @@
+package tasker.api.models;
+
+import tasker.api.resources.Task;
+
+/**
+ * Result of a single task write. The list version is only assigned once the write's transaction commits
+ */
+public class TaskMutation {
+    private final TaskOperation operation;
+    private final Task task;
+    private long version;
+
+    public TaskMutation(TaskOperation operation, Task task) {
+        this.operation = operation;
+        this.task = task;
+    }
+
+    /** SETTERS */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /** GETTERS */
+    public TaskOperation getOperation() {
+        return operation;
+    }
+    public Task getTask() {
+        return task;
+    }
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,7 @@
+package tasker.api.models;
+
+public enum TaskOperation {
+    ADD,
+    UPDATE,
+    DELETE
+}
@@ -0,0 +1,13 @@
+package tasker.api.models;
+
+import tasker.api.resources.Task;
+
+import java.util.List;
+
+/**
+ * A slice of a user's ordered task list
+ * @param tasks the tasks in this page
+ * @param nextCursor cursor to fetch the following page, or null if this is the last one
+ */
+public record TaskPage(List<Task> tasks, String nextCursor) {
+}
@@ -0,0 +1,14 @@
+package tasker.api.models;
+
+import tasker.api.resources.Task;
+
+import java.util.List;
+
+/**
+ * A user's sorted task list and the list version it was read at. The list holds every write up to that version,
+ * and may already hold later ones
+ * @param version the list version read before the tasks
+ * @param tasks the user's immutable task list
+ */
+public record VersionedTaskList(long version, List<Task> tasks) {
+}
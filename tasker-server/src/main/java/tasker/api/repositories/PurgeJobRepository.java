@@ -0,0 +1,26 @@
+package tasker.api.repositories;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import tasker.api.resources.PurgeJob;
+
+/**
+ * Purge job storage. Jobs are saved once, when their account is deleted, and their progress is then only updated in
+ * place, so a purge never brings back a job that another server already finished
+ */
+public interface PurgeJobRepository extends Repository<PurgeJob, String> {
+    Iterable<PurgeJob> findAll();
+    boolean existsById(String username);
+    <S extends PurgeJob> S save(S job);
+    void delete(PurgeJob job);
+
+    /**
+     * Adds to the number of tasks a job has purged. Must run in the transaction that deleted them
+     * @return 1, or 0 if the job no longer exists
+     */
+    @Modifying
+    @Query("UPDATE PurgeJob j SET j.deletedTasks = j.deletedTasks + :count WHERE j.username = :username")
+    int addDeletedTasks(@Param("username") String username, @Param("count") long count);
+}
@@ -1,18 +1,57 @@
 package tasker.api.repositories;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.stereotype.Repository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 import tasker.api.resources.Task;
-import tasker.api.resources.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-@Repository
-public interface TaskerRepository extends JpaRepository<Task, Long> {
-    List<Task> findAll(Sort sort);
+/**
+ * Task storage. Only the operations the services use are declared, so other storage engines can implement it too
+ */
+public interface TaskerRepository extends Repository<Task, Long> {
+
+    <S extends Task> S save(S task);
+    <S extends Task> List<S> saveAll(Iterable<S> tasks);
+    void delete(Task task);
+    void deleteAll(Iterable<? extends Task> tasks);
+
     List<Task> findByUsername(String username, Sort sort);
-    Optional<Task> findByIdAndUsername(Long id, String username);
-    void deleteByUsername(String username);
+    List<Task> findByUsername(String username, Sort sort, Limit limit);
+    Optional<Task> findById(Long id);
+    List<Task> findByUsernameAndIdIn(String username, Collection<Long> ids);
+
+    /**
+     * Finds one of the user's tasks by its primary key. The owner is checked once the task is read, rather than in
+     * the query: with the username in the query, the database may read through the user's listing index entries
+     * instead of the primary key
+     */
+    default Optional<Task> findByIdAndUsername(Long id, String username) {
+        return findById(id).filter(task -> task.getUsername().equals(username));
+    }
+
+    /**
+     * Keyset query for the tasks placed after the given one, in the (priority desc, description asc, id asc) order.
+     * The redundant 'priority <= :priority' bound lets the database seek into the listing index instead of scanning
+     * the user's earlier pages, and the constant username leading the order lets it skip the sort
+     */
+    @Query("SELECT t FROM Task t WHERE t.username = :username AND t.priority <= :priority AND (t.priority < :priority OR " +
+            "(t.priority = :priority AND (t.description > :description OR (t.description = :description AND t.id > :id)))) " +
+            "ORDER BY t.username ASC, t.priority DESC, t.description ASC, t.id ASC")
+    List<Task> findByUsernameAfter(@Param("username") String username, @Param("priority") Integer priority,
+                                   @Param("description") String description, @Param("id") Long id, Limit limit);
+
+    /**
+     * Deletes up to 'limit' of the user's tasks with a single statement, without loading them
+     * @return the number of deleted tasks
+     */
+    @Modifying
+    @Query(value = "DELETE FROM task WHERE username = :username LIMIT :limit", nativeQuery = true)
+    int deleteChunkByUsername(@Param("username") String username, @Param("limit") int limit);
 }
@@ -1,9 +1,50 @@
 package tasker.api.repositories;
 
-import org.springframework.data.repository.CrudRepository;
-import org.springframework.stereotype.Repository;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 import tasker.api.resources.User;
 
-@Repository
-public interface UsersRepository extends CrudRepository<User, String> {
+import java.util.Optional;
+
+/**
+ * User storage. Users are never merged whole: they are inserted once, and then only the changed columns are updated,
+ * so a stale copy can neither bring a deleted user back nor overwrite a concurrent change
+ */
+public interface UsersRepository extends Repository<User, String> {
+    Optional<User> findById(String username);
+    void delete(User user);
+
+    /**
+     * Inserts a new user
+     * @throws org.springframework.dao.DataIntegrityViolationException the username is taken
+     */
+    @Transactional
+    @Modifying
+    @Query("INSERT INTO User (username, password, email, firstName, lastName) " +
+            "VALUES (:username, :password, :email, :firstName, :lastName)")
+    int insert(@Param("username") String username, @Param("password") String password, @Param("email") String email,
+               @Param("firstName") String firstName, @Param("lastName") String lastName);
+
+    /**
+     * Updates the user's details, leaving its password as it is
+     * @return the number of updated users, 0 if it does not exist
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.email = :email, u.firstName = :firstName, u.lastName = :lastName WHERE u.username = :username")
+    int updateDetails(@Param("username") String username, @Param("email") String email,
+                      @Param("firstName") String firstName, @Param("lastName") String lastName);
+
+    /**
+     * Replaces the user's password hash, only if it is still the expected one
+     * @return the number of updated users, 0 if it does not exist or its password changed meanwhile
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :newPassword WHERE u.username = :username AND u.password = :oldPassword")
+    int updatePassword(@Param("username") String username, @Param("oldPassword") String oldPassword,
+                       @Param("newPassword") String newPassword);
 }
@@ -0,0 +1,166 @@
+package tasker.api.repositories.memory;
+
+import tasker.api.resources.PurgeJob;
+import tasker.api.resources.Task;
+import tasker.api.resources.User;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * A change to the in-memory storage, as written to the journal and to snapshots
+ * <p>
+ * Every record holds the full new state of one entity (or its removal), so applying a record twice is harmless.
+ * Encoded records are framed as [payload length][CRC32C of payload][payload], the payload starting with the record's
+ * type
+ * </p>
+ */
+sealed interface JournalRecord {
+    record TaskSaved(long id, String username, String description, int priority) implements JournalRecord {}
+    record TaskDeleted(long id) implements JournalRecord {}
+    record UserSaved(String username, String password, String email, String firstName, String lastName) implements JournalRecord {}
+    record UserDeleted(String username) implements JournalRecord {}
+    record PurgeJobSaved(String username, long deletedTasks, long requestedAt) implements JournalRecord {}
+    record PurgeJobDeleted(String username) implements JournalRecord {}
+
+
+    /** Constants */
+    int HEADER_BYTES = 2 * Integer.BYTES;
+    int MAX_PAYLOAD_BYTES = 16 * 1024 * 1024;
+
+    byte TASK_SAVED = 1;
+    byte TASK_DELETED = 2;
+    byte USER_SAVED = 3;
+    byte USER_DELETED = 4;
+    byte PURGE_JOB_SAVED = 5;
+    byte PURGE_JOB_DELETED = 6;
+
+
+    static JournalRecord of(Task task) {
+        return new TaskSaved(task.getId(), task.getUsername(), task.getDescription(), task.getPriority());
+    }
+
+    static JournalRecord of(User user) {
+        return new UserSaved(user.getUsername(), user.getPassword(), user.getEmail(), user.getFirstName(), user.getLastName());
+    }
+
+    static JournalRecord of(PurgeJob job) {
+        return new PurgeJobSaved(job.getUsername(), job.getDeletedTasks(), job.getRequestedAt());
+    }
+
+    /**
+     * Encodes the record with its frame
+     * @return a buffer ready to be written
+     */
+    default ByteBuffer encode() {
+        Encoder encoder = new Encoder();
+        switch (this) {
+            case TaskSaved task -> encoder.type(TASK_SAVED).number(task.id()).text(task.username()).text(task.description()).number(task.priority());
+            case TaskDeleted task -> encoder.type(TASK_DELETED).number(task.id());
+            case UserSaved user -> encoder.type(USER_SAVED).text(user.username()).text(user.password()).text(user.email())
+                    .text(user.firstName()).text(user.lastName());
+            case UserDeleted user -> encoder.type(USER_DELETED).text(user.username());
+            case PurgeJobSaved job -> encoder.type(PURGE_JOB_SAVED).text(job.username()).number(job.deletedTasks()).number(job.requestedAt());
+            case PurgeJobDeleted job -> encoder.type(PURGE_JOB_DELETED).text(job.username());
+        }
+        return encoder.frame();
+    }
+
+    /**
+     * Decodes the record starting at the buffer's position, moving the position past it
+     * @return the record, or null if the bytes left do not hold a complete and intact record
+     */
+    static JournalRecord decode(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES) {
+            return null;
+        }
+
+        int start = buffer.position();
+        int length = buffer.getInt(start);
+        int checksum = buffer.getInt(start + Integer.BYTES);
+        if (length < 1 || length > MAX_PAYLOAD_BYTES || buffer.remaining() < HEADER_BYTES + length) {
+            return null;
+        }
+
+        ByteBuffer payload = buffer.slice(start + HEADER_BYTES, length);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+
+        JournalRecord record = switch (payload.get()) {
+            case TASK_SAVED -> new TaskSaved(payload.getLong(), text(payload), text(payload), (int) payload.getLong());
+            case TASK_DELETED -> new TaskDeleted(payload.getLong());
+            case USER_SAVED -> new UserSaved(text(payload), text(payload), text(payload), text(payload), text(payload));
+            case USER_DELETED -> new UserDeleted(text(payload));
+            case PURGE_JOB_SAVED -> new PurgeJobSaved(text(payload), payload.getLong(), payload.getLong());
+            case PURGE_JOB_DELETED -> new PurgeJobDeleted(text(payload));
+            default -> null;
+        };
+
+        if (record != null) {
+            buffer.position(start + HEADER_BYTES + length);
+        }
+        return record;
+    }
+
+    private static String text(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Collects the fields of one record, then writes them into an exactly sized buffer
+     */
+    final class Encoder {
+        private final Object[] fields = new Object[6];
+        private int count;
+        private int size = 1;
+        private byte type;
+
+        Encoder type(byte type) {
+            this.type = type;
+            return this;
+        }
+
+        Encoder number(long value) {
+            fields[count++] = value;
+            size += Long.BYTES;
+            return this;
+        }
+
+        Encoder text(String value) {
+            byte[] bytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+            fields[count++] = bytes;
+            size += Integer.BYTES + (bytes == null ? 0 : bytes.length);
+            return this;
+        }
+
+        ByteBuffer frame() {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + size);
+            buffer.position(HEADER_BYTES).put(type);
+            for (int i = 0; i < count; i++) {
+                if (fields[i] instanceof Long value) {
+                    buffer.putLong(value);
+                } else if (fields[i] instanceof byte[] bytes) {
+                    buffer.putInt(bytes.length).put(bytes);
+                } else {
+                    buffer.putInt(-1);
+                }
+            }
+
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.array(), HEADER_BYTES, size);
+            return buffer.putInt(0, size).putInt(Integer.BYTES, (int) crc.getValue()).flip().position(0);
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package tasker.api.repositories.memory;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tasker.api.utils.Shell;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Write-ahead log of the 'memory' profile's storage
+ * <p>
+ * Repositories append a {@link JournalRecord} for every change, and a transaction only commits once the records of
+ * its changes are durable. Records are numbered in append order and written by a single thread: every record
+ * appended while a write was in progress goes into the next write, so concurrent commits share one write and one
+ * fsync. With a non-zero 'tasker.storage.journal.fsync-interval', commits only wait for the write and the file is
+ * forced at that interval instead, so a crash of the machine may lose the last interval of changes
+ * </p>
+ * <p>
+ * The log is split in segment files named after the number of their first record. {@link MemorySnapshots} starts a
+ * new segment before each snapshot, so the older ones can be deleted once the snapshot is written. Persistence is
+ * disabled, and nothing is appended, when 'tasker.storage.directory' is blank
+ * </p>
+ */
+@Component
+@Profile(MemoryTransactionManager.PROFILE)
+public class MemoryJournal {
+
+    /** Constants */
+    public static final String SEGMENT_PREFIX = "journal-";
+    public static final String SEGMENT_SUFFIX = ".log";
+    public static final String THREAD_NAME = "tasker-journal";
+    public static final long MAP_WINDOW_BYTES = 256L * 1024 * 1024;
+
+    /** Variables */
+    private final Path directory;
+    private final Duration fsyncInterval;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final Condition written = lock.newCondition();
+    private List<ByteBuffer> pending = new ArrayList<>();
+    private long lastSequence;
+    private long writtenSequence;
+    private long durableSequence;
+    private long rotatedSequence;
+    private boolean rotateRequested;
+    private boolean closed;
+    private IOException failure;
+
+    private FileChannel segment;
+    private Thread writer;
+
+    public MemoryJournal(@Value("${tasker.storage.directory:}") String directory,
+                         @Value("${tasker.storage.journal.fsync-interval}") Duration fsyncInterval) {
+        this.directory = directory.isBlank() ? null : Path.of(directory);
+        this.fsyncInterval = fsyncInterval;
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Replays the segments that start at or after a sequence number, in order. A segment is replayed up to its first
+     * torn or corrupt record, which can only be the tail of a write interrupted by a crash
+     * @param from the sequence number of the first record to replay
+     * @param apply receives every record
+     * @return the sequence number following the last replayed record
+     */
+    long replay(long from, Consumer<JournalRecord> apply) throws IOException {
+        long next = from;
+        for (Path path : segments()) {
+            long start = sequenceOf(path);
+            if (start < from) {
+                continue;
+            }
+            if (start > next) {
+                throw new IOException(String.format("Journal records %d to %d are missing", next, start - 1));
+            }
+
+            long[] count = new long[1];
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long end = readRecords(channel, 0, record -> {
+                    apply.accept(record);
+                    count[0]++;
+                });
+                if (end < channel.size()) {
+                    Shell.getInstance().printError(String.format("Journal segment '%s' has a torn tail after %d records, ignoring %d bytes",
+                            path.getFileName(), count[0], channel.size() - end));
+                }
+            }
+            next = start + count[0];
+        }
+        return next;
+    }
+
+    /**
+     * Starts appending at the given sequence number, in a new segment
+     */
+    void open(long sequence) throws IOException {
+        lock.lock();
+        try {
+            lastSequence = writtenSequence = durableSequence = sequence - 1;
+            segment = openSegment(sequence);
+        } finally {
+            lock.unlock();
+        }
+
+        writer = new Thread(this::write, THREAD_NAME);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Appends a record. It is only known to be durable once {@link #commit(long)} returns
+     * @return the record's sequence number, or 0 if persistence is disabled
+     */
+    long append(JournalRecord record) {
+        if (writer == null) {
+            return 0;
+        }
+
+        ByteBuffer buffer = record.encode();
+        lock.lock();
+        try {
+            pending.add(buffer);
+            appended.signal();
+            return ++lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes sure the records up to the given sequence number are durable, once the surrounding transaction commits,
+     * or right away when there is no transaction
+     */
+    void commit(long sequence) {
+        AtomicLong transaction = (AtomicLong) TransactionSynchronizationManager.getResource(this);
+        if (transaction != null) {
+            transaction.accumulateAndGet(sequence, Math::max);
+        } else {
+            awaitDurable(sequence);
+        }
+    }
+
+    /** Called by {@link MemoryTransactionManager} when a transaction begins */
+    void beginTransaction() {
+        TransactionSynchronizationManager.bindResource(this, new AtomicLong());
+    }
+
+    /** Called by {@link MemoryTransactionManager} when a transaction commits */
+    void commitTransaction() {
+        AtomicLong transaction = (AtomicLong) TransactionSynchronizationManager.getResource(this);
+        if (transaction != null) {
+            awaitDurable(transaction.get());
+        }
+    }
+
+    /** Called by {@link MemoryTransactionManager} once a transaction is over */
+    void endTransaction() {
+        TransactionSynchronizationManager.unbindResourceIfPossible(this);
+    }
+
+    /**
+     * Waits until the records up to the given sequence number are durable
+     * @throws UncheckedIOException if the journal could not be written
+     */
+    void awaitDurable(long sequence) {
+        if (sequence == 0) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            while (durableSequence < sequence && failure == null) {
+                written.awaitUninterruptibly();
+            }
+            if (durableSequence < sequence) {
+                throw new UncheckedIOException("Could not write the storage journal", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the sequence number of the last appended record
+     */
+    long getLastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces every appended record to disk and starts a new segment
+     * @return the sequence number of the new segment's first record
+     */
+    long rotate() {
+        lock.lock();
+        try {
+            rotateRequested = true;
+            appended.signal();
+            while (rotateRequested && failure == null) {
+                written.awaitUninterruptibly();
+            }
+            if (rotateRequested) {
+                throw new UncheckedIOException("Could not rotate the storage journal", failure);
+            }
+            return rotatedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the segments holding only records before the given sequence number
+     */
+    void deleteSegmentsBefore(long sequence) throws IOException {
+        for (Path path : segments()) {
+            if (sequenceOf(path) < sequence) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException, IOException {
+        if (writer == null) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            closed = true;
+            appended.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        writer.join();
+        segment.force(false);
+        segment.close();
+    }
+
+    /**
+     * Body of the writer thread: takes every pending record, writes them at once and wakes up their committers
+     */
+    private void write() {
+        long nextForce = System.nanoTime() + fsyncInterval.toNanos();
+        boolean unforced = false;
+
+        while (true) {
+            List<ByteBuffer> batch;
+            long batchEnd;
+            boolean rotate;
+
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !rotateRequested && !closed) {
+                    long wait = nextForce - System.nanoTime();
+                    if (!unforced) {
+                        appended.awaitUninterruptibly();
+                    } else if (wait <= 0 || !awaitAppended(wait)) {
+                        break;
+                    }
+                }
+                if (closed && pending.isEmpty()) {
+                    failure = new IOException("The storage journal is closed");
+                    written.signalAll();
+                    return;
+                }
+
+                batch = pending;
+                pending = new ArrayList<>();
+                batchEnd = lastSequence;
+                rotate = rotateRequested;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                ByteBuffer[] buffers = batch.toArray(ByteBuffer[]::new);
+                while (buffers.length > 0 && buffers[buffers.length - 1].hasRemaining()) {
+                    segment.write(buffers);
+                }
+
+                boolean force = rotate || fsyncInterval.isZero() || System.nanoTime() >= nextForce;
+                if (force) {
+                    segment.force(false);
+                    nextForce = System.nanoTime() + fsyncInterval.toNanos();
+                }
+                unforced = !force;
+                if (rotate) {
+                    segment.close();
+                    segment = openSegment(batchEnd + 1);
+                }
+
+                signal(batchEnd, force, rotate);
+            } catch (IOException e) {
+                Shell.getInstance().printError("Could not write the storage journal: " + e.getMessage());
+                lock.lock();
+                try {
+                    failure = e;
+                    written.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+        }
+    }
+
+    private boolean awaitAppended(long nanos) {
+        try {
+            return appended.await(nanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+    }
+
+    private void signal(long batchEnd, boolean forced, boolean rotated) {
+        lock.lock();
+        try {
+            writtenSequence = batchEnd;
+            if (forced || !fsyncInterval.isZero()) {
+                durableSequence = batchEnd;
+            }
+            if (rotated) {
+                rotatedSequence = batchEnd + 1;
+                rotateRequested = false;
+            }
+            written.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private FileChannel openSegment(long sequence) throws IOException {
+        Files.createDirectories(directory);
+        return FileChannel.open(directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private List<Path> segments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Decodes the records of a file from the given position, through memory mapped windows of the file
+     * @param apply receives every record
+     * @return the position following the last intact record
+     */
+    static long readRecords(FileChannel channel, long position, Consumer<JournalRecord> apply) throws IOException {
+        long size = channel.size();
+        while (position < size) {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW_BYTES, size - position));
+            JournalRecord record;
+            while ((record = JournalRecord.decode(window)) != null) {
+                apply.accept(record);
+            }
+
+            // Nothing decoded: the next record is torn, corrupt, or the file's end marker
+            if (window.position() == 0) {
+                break;
+            }
+            position += window.position();
+        }
+        return position;
+    }
+}
@@ -0,0 +1,92 @@
+package tasker.api.repositories.memory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import tasker.api.repositories.PurgeJobRepository;
+import tasker.api.resources.PurgeJob;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Purge job storage kept in memory, used instead of the database by the 'memory' profile. Jobs are only changed by
+ * the single purge thread, so they are stored as given, and replaced by an updated copy when their progress is added
+ */
+@Repository
+@Profile(MemoryTransactionManager.PROFILE)
+public class MemoryPurgeJobRepository implements PurgeJobRepository {
+
+    /** Variables */
+    private final Map<String, PurgeJob> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    private MemoryJournal journal;
+
+
+    @Override
+    public Iterable<PurgeJob> findAll() {
+        return List.copyOf(jobs.values());
+    }
+
+    @Override
+    public boolean existsById(String username) {
+        return jobs.containsKey(username);
+    }
+
+    @Override
+    public <S extends PurgeJob> S save(S job) {
+        long[] sequence = new long[1];
+        jobs.compute(job.getUsername(), (username, previous) -> {
+            sequence[0] = journal.append(JournalRecord.of(job));
+            return job;
+        });
+
+        journal.commit(sequence[0]);
+        return job;
+    }
+
+    @Override
+    public int addDeletedTasks(String username, long count) {
+        long[] sequence = new long[1];
+        PurgeJob updated = jobs.computeIfPresent(username, (key, previous) -> {
+            PurgeJob job = new PurgeJob(username, previous.getDeletedTasks() + count, previous.getRequestedAt());
+            sequence[0] = journal.append(JournalRecord.of(job));
+            return job;
+        });
+
+        journal.commit(sequence[0]);
+        return updated == null ? 0 : 1;
+    }
+
+    @Override
+    public void delete(PurgeJob job) {
+        long[] sequence = new long[1];
+        jobs.computeIfPresent(job.getUsername(), (username, previous) -> {
+            sequence[0] = journal.append(new JournalRecord.PurgeJobDeleted(username));
+            return null;
+        });
+
+        journal.commit(sequence[0]);
+    }
+
+    /**
+     * Applies a recovered record, without appending it to the journal. Only used before the server starts
+     */
+    void restore(JournalRecord.PurgeJobSaved record) {
+        jobs.put(record.username(), new PurgeJob(record.username(), record.deletedTasks(), record.requestedAt()));
+    }
+
+    void restore(JournalRecord.PurgeJobDeleted record) {
+        jobs.remove(record.username());
+    }
+
+    /**
+     * Passes a record of every stored job, for a snapshot
+     */
+    void snapshot(Consumer<JournalRecord> out) {
+        jobs.values().forEach(job -> out.accept(JournalRecord.of(job)));
+    }
+}
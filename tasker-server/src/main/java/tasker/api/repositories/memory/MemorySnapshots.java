@@ -0,0 +1,235 @@
+package tasker.api.repositories.memory;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tasker.api.utils.Shell;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Restores the 'memory' profile's storage at startup and keeps its {@link MemoryJournal} short with periodic snapshots
+ * <p>
+ * A snapshot holds a record of every stored entity, so startup maps the latest snapshot into memory and only replays
+ * the journal written after it, instead of the whole history. Snapshots are taken while the storage keeps changing:
+ * the journal first starts a new segment, and a snapshot read after that point holds at least every change of the
+ * older segments. Changes the snapshot already holds are simply applied again when their segment is replayed, since
+ * records carry full states
+ * </p>
+ * <p>
+ * A snapshot is written to a temporary file, forced to disk and renamed, so a crash never leaves a partial one. The
+ * segments and snapshots it replaces are deleted afterwards
+ * </p>
+ */
+@Component
+@Profile(MemoryTransactionManager.PROFILE)
+public class MemorySnapshots {
+
+    /** Constants */
+    public static final String SNAPSHOT_PREFIX = "snapshot-";
+    public static final String SNAPSHOT_SUFFIX = ".dat";
+    public static final String TEMPORARY_SUFFIX = ".tmp";
+    public static final int MAGIC = 0x54534b53;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 2 * Integer.BYTES + 2 * Long.BYTES;
+    public static final int TRAILER_BYTES = Integer.BYTES + Long.BYTES;
+    public static final int WRITE_BUFFER_BYTES = 1024 * 1024;
+
+    /** Variables */
+    @Autowired
+    private MemoryJournal journal;
+    @Autowired
+    private MemoryTaskerRepository taskerRepository;
+    @Autowired
+    private MemoryUsersRepository usersRepository;
+    @Autowired
+    private MemoryPurgeJobRepository purgeJobRepository;
+
+    private long snapshotSequence = 1;
+
+
+    @PostConstruct
+    public void restore() throws IOException {
+        if (!journal.isEnabled()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        for (Path file : files(TEMPORARY_SUFFIX)) {
+            Files.delete(file);
+        }
+
+        List<Path> snapshots = files(SNAPSHOT_SUFFIX);
+        long restored = 0;
+        if (!snapshots.isEmpty()) {
+            Path snapshot = snapshots.get(snapshots.size() - 1);
+            restored = load(snapshot);
+            snapshotSequence = sequenceOf(snapshot);
+        }
+
+        long[] replayed = new long[1];
+        long next = journal.replay(snapshotSequence, record -> {
+            apply(record);
+            replayed[0]++;
+        });
+        journal.open(next);
+
+        Shell.getInstance().printFine(String.format("Storage restored from '%s' in %d ms: %d snapshot records, %d journal records",
+                journal.getDirectory(), (System.nanoTime() - start) / 1_000_000, restored, replayed[0]));
+    }
+
+    /**
+     * Writes a snapshot of the storage and deletes the journal segments and snapshots it replaces. Nothing is written
+     * if the storage did not change since the last snapshot
+     */
+    @Scheduled(fixedDelayString = "${tasker.storage.snapshot-interval}", initialDelayString = "${tasker.storage.snapshot-interval}")
+    public void snapshot() throws IOException {
+        if (!journal.isEnabled() || journal.getLastSequence() < snapshotSequence) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        long sequence = journal.rotate();
+        Path snapshot = journal.getDirectory().resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+        Path temporary = snapshot.resolveSibling(snapshot.getFileName() + TEMPORARY_SUFFIX);
+
+        long records = write(temporary, sequence);
+        Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel directory = FileChannel.open(journal.getDirectory(), StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+
+        journal.deleteSegmentsBefore(sequence);
+        for (Path older : files(SNAPSHOT_SUFFIX)) {
+            if (sequenceOf(older) < sequence) {
+                Files.delete(older);
+            }
+        }
+        snapshotSequence = sequence;
+
+        Shell.getInstance().printFine(String.format("Storage snapshot of %d records written in %d ms",
+                records, (System.nanoTime() - start) / 1_000_000));
+    }
+
+    private long write(Path file, long sequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(sequence).putLong(taskerRepository.getLastId());
+
+            long[] count = new long[1];
+            Consumer<JournalRecord> out = record -> {
+                ByteBuffer encoded = record.encode();
+                try {
+                    if (buffer.remaining() < encoded.remaining()) {
+                        flush(channel, buffer);
+                    }
+                    if (buffer.remaining() < encoded.remaining()) {
+                        writeFully(channel, encoded);
+                    } else {
+                        buffer.put(encoded);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            };
+
+            try {
+                usersRepository.snapshot(out);
+                purgeJobRepository.snapshot(out);
+                taskerRepository.snapshot(out);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            if (buffer.remaining() < TRAILER_BYTES) {
+                flush(channel, buffer);
+            }
+            buffer.putInt(0).putLong(count[0]);
+            flush(channel, buffer);
+            channel.force(true);
+            return count[0];
+        }
+    }
+
+    private long load(Path snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0);
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(String.format("Snapshot '%s' is not a storage snapshot", snapshot.getFileName()));
+            }
+            header.getLong();
+            taskerRepository.restoreLastId(header.getLong());
+
+            long[] count = new long[1];
+            long end = MemoryJournal.readRecords(channel, HEADER_BYTES, record -> {
+                apply(record);
+                count[0]++;
+            });
+
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+            channel.read(trailer, end);
+            trailer.flip();
+            if (end + TRAILER_BYTES != channel.size() || trailer.getInt() != 0 || trailer.getLong() != count[0]) {
+                throw new IOException(String.format("Snapshot '%s' is corrupt after %d records", snapshot.getFileName(), count[0]));
+            }
+            return count[0];
+        }
+    }
+
+    private void apply(JournalRecord record) {
+        switch (record) {
+            case JournalRecord.TaskSaved task -> taskerRepository.restore(task);
+            case JournalRecord.TaskDeleted task -> taskerRepository.restore(task);
+            case JournalRecord.UserSaved user -> usersRepository.restore(user);
+            case JournalRecord.UserDeleted user -> usersRepository.restore(user);
+            case JournalRecord.PurgeJobSaved job -> purgeJobRepository.restore(job);
+            case JournalRecord.PurgeJobDeleted job -> purgeJobRepository.restore(job);
+        }
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        Path directory = journal.getDirectory();
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(SNAPSHOT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(suffix))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long sequenceOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        writeFully(channel, buffer);
+        buffer.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
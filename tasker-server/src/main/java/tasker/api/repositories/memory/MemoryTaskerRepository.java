@@ -0,0 +1,263 @@
+package tasker.api.repositories.memory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Repository;
+import tasker.api.repositories.TaskerRepository;
+import tasker.api.resources.Task;
+import tasker.api.services.TaskerService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Task storage kept in memory, used instead of the database by the 'memory' profile
+ * <p>
+ * Tasks are indexed by id in a hash map, and per user in a sorted map in the listing order. Reads never lock, so a
+ * list read during an update may briefly see the task at both positions. Writes lock one of a fixed set of stripes chosen by
+ * username: writes of one user are serialized, while different users rarely contend. The stripes are not
+ * 'synchronized' blocks, so waiting writers do not pin virtual threads
+ * </p>
+ * <p>
+ * Tasks are copied when saved and when returned, so callers can change the tasks they get without touching the
+ * indexes. Changes are applied right away and are not undone if the surrounding transaction rolls back. Each change
+ * is appended to the {@link MemoryJournal} under the stripe lock, so the journal holds a user's changes in the order
+ * they were applied
+ * </p>
+ */
+@Repository
+@Profile(MemoryTransactionManager.PROFILE)
+public class MemoryTaskerRepository implements TaskerRepository {
+
+    /** Constants */
+    public static final int LOCK_STRIPES = 64;
+
+    /** Variables */
+    private final Map<Long, Task> tasksById = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrentSkipListMap<TaskKey, Task>> tasksByUser = new ConcurrentHashMap<>();
+    private final Lock[] stripes = new Lock[LOCK_STRIPES];
+    private final AtomicLong lastId = new AtomicLong();
+
+    @Autowired
+    private MemoryJournal journal;
+
+
+    public MemoryTaskerRepository() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public <S extends Task> S save(S task) {
+        if (task.getId() == null) {
+            task.setId(lastId.incrementAndGet());
+        }
+
+        Task stored = copy(task);
+        long sequence;
+        Lock lock = stripe(stored.getUsername());
+        lock.lock();
+        try {
+            index(stored);
+            sequence = journal.append(JournalRecord.of(stored));
+        } finally {
+            lock.unlock();
+        }
+
+        journal.commit(sequence);
+        return task;
+    }
+
+    @Override
+    public <S extends Task> List<S> saveAll(Iterable<S> tasks) {
+        List<S> result = new ArrayList<>();
+        tasks.forEach(task -> result.add(save(task)));
+        return result;
+    }
+
+    @Override
+    public void delete(Task task) {
+        long sequence = 0;
+        Lock lock = stripe(task.getUsername());
+        lock.lock();
+        try {
+            if (unindex(task.getId())) {
+                sequence = journal.append(new JournalRecord.TaskDeleted(task.getId()));
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        journal.commit(sequence);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Task> tasks) {
+        tasks.forEach(this::delete);
+    }
+
+    @Override
+    public List<Task> findByUsername(String username, Sort sort) {
+        return findByUsername(username, sort, Limit.unlimited());
+    }
+
+    @Override
+    public List<Task> findByUsername(String username, Sort sort, Limit limit) {
+        checkOrder(sort);
+        return copies(userTasks(username).values().stream(), limit);
+    }
+
+    @Override
+    public Optional<Task> findById(Long id) {
+        Task task = tasksById.get(id);
+        return task == null ? Optional.empty() : Optional.of(copy(task));
+    }
+
+    @Override
+    public Optional<Task> findByIdAndUsername(Long id, String username) {
+        Task task = tasksById.get(id);
+        if (task == null || !task.getUsername().equals(username)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(copy(task));
+    }
+
+    @Override
+    public List<Task> findByUsernameAndIdIn(String username, Collection<Long> ids) {
+        return copies(ids.stream().map(tasksById::get).filter(Objects::nonNull).filter(task -> task.getUsername().equals(username)), Limit.unlimited());
+    }
+
+    @Override
+    public List<Task> findByUsernameAfter(String username, Integer priority, String description, Long id, Limit limit) {
+        TaskKey after = new TaskKey(priority, description, id);
+        return copies(userTasks(username).tailMap(after, false).values().stream(), limit);
+    }
+
+    @Override
+    public int deleteChunkByUsername(String username, int limit) {
+        int count = 0;
+        long sequence = 0;
+        Lock lock = stripe(username);
+        lock.lock();
+        try {
+            ConcurrentSkipListMap<TaskKey, Task> tasks = tasksByUser.get(username);
+            if (tasks == null) {
+                return 0;
+            }
+
+            Map.Entry<TaskKey, Task> entry;
+            while (count < limit && (entry = tasks.pollFirstEntry()) != null) {
+                tasksById.remove(entry.getKey().id());
+                sequence = journal.append(new JournalRecord.TaskDeleted(entry.getKey().id()));
+                count++;
+            }
+
+            if (tasks.isEmpty()) {
+                tasksByUser.remove(username);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        journal.commit(sequence);
+        return count;
+    }
+
+    /**
+     * Applies a recovered record, without appending it to the journal. Only used before the server starts
+     */
+    void restore(JournalRecord.TaskSaved record) {
+        Task task = new Task();
+        task.setId(record.id());
+        task.setUsername(record.username());
+        task.setDescription(record.description());
+        task.setPriority(record.priority());
+        index(task);
+        restoreLastId(record.id());
+    }
+
+    void restore(JournalRecord.TaskDeleted record) {
+        unindex(record.id());
+        restoreLastId(record.id());
+    }
+
+    void restoreLastId(long id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    long getLastId() {
+        return lastId.get();
+    }
+
+    /**
+     * Passes a record of every stored task, for a snapshot. Tasks changed meanwhile may be seen in either version
+     */
+    void snapshot(Consumer<JournalRecord> out) {
+        tasksById.values().forEach(task -> out.accept(JournalRecord.of(task)));
+    }
+
+    /**
+     * Indexes a task's new version before removing the old one, so the task never disappears from its list
+     */
+    private void index(Task stored) {
+        TaskKey key = TaskKey.of(stored);
+        Task previous = tasksById.put(stored.getId(), stored);
+        tasksByUser.computeIfAbsent(stored.getUsername(), username -> new ConcurrentSkipListMap<>()).put(key, stored);
+        if (previous != null && !TaskKey.of(previous).equals(key)) {
+            userTasks(previous.getUsername()).remove(TaskKey.of(previous));
+        }
+    }
+
+    private boolean unindex(Long id) {
+        Task removed = tasksById.remove(id);
+        if (removed != null) {
+            userTasks(removed.getUsername()).remove(TaskKey.of(removed));
+        }
+        return removed != null;
+    }
+
+    private ConcurrentSkipListMap<TaskKey, Task> userTasks(String username) {
+        ConcurrentSkipListMap<TaskKey, Task> tasks = tasksByUser.get(username);
+        return tasks == null ? new ConcurrentSkipListMap<>() : tasks;
+    }
+
+    private Lock stripe(String username) {
+        return stripes[Math.floorMod(Objects.hashCode(username), LOCK_STRIPES)];
+    }
+
+    private static void checkOrder(Sort sort) {
+        if (!TaskerService.TASK_ORDER.equals(sort)) {
+            throw new UnsupportedOperationException("Tasks in memory can only be sorted in the listing order");
+        }
+    }
+
+    private static List<Task> copies(Stream<Task> tasks, Limit limit) {
+        Stream<Task> limited = limit.isLimited() ? tasks.limit(limit.max()) : tasks;
+        return limited.map(MemoryTaskerRepository::copy).collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private static Task copy(Task task) {
+        Task copy = new Task();
+        copy.setId(task.getId());
+        copy.setUsername(task.getUsername());
+        copy.setDescription(task.getDescription());
+        copy.setPriority(task.getPriority());
+        return copy;
+    }
+}
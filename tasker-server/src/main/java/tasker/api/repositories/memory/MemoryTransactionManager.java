@@ -0,0 +1,61 @@
+package tasker.api.repositories.memory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Transaction manager of the 'memory' profile, where there is no database to begin or commit anything
+ * <p>
+ * It gives '@Transactional' methods their transaction scope, so code registered to run after commit still runs
+ * once the outermost transactional method returns, and makes the commit wait until the {@link MemoryJournal} records
+ * of the transaction's changes are durable. Nothing is undone on rollback
+ * </p>
+ */
+@Component("transactionManager")
+@Profile(MemoryTransactionManager.PROFILE)
+public class MemoryTransactionManager extends AbstractPlatformTransactionManager {
+    private record MemoryTransaction(boolean existing) {}
+
+
+    /** Constants */
+    public static final String PROFILE = "memory";
+
+    /** Variables */
+    @Autowired
+    private MemoryJournal journal;
+
+
+    @Override
+    protected Object doGetTransaction() {
+        return new MemoryTransaction(TransactionSynchronizationManager.isActualTransactionActive());
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction) {
+        return ((MemoryTransaction) transaction).existing();
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        journal.beginTransaction();
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        journal.commitTransaction();
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        journal.endTransaction();
+    }
+}
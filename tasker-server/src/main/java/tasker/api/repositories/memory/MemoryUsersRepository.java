@@ -0,0 +1,144 @@
+package tasker.api.repositories.memory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Repository;
+import tasker.api.repositories.UsersRepository;
+import tasker.api.resources.User;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * User storage kept in memory, used instead of the database by the 'memory' profile. Users are copied when stored
+ * and when returned, and their changes are appended to the {@link MemoryJournal}, like tasks in
+ * {@link MemoryTaskerRepository}. Like the database, inserts fail on a taken username and updates only change users
+ * that still exist
+ */
+@Repository
+@Profile(MemoryTransactionManager.PROFILE)
+public class MemoryUsersRepository implements UsersRepository {
+
+    /** Variables */
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+
+    @Autowired
+    private MemoryJournal journal;
+
+
+    @Override
+    public Optional<User> findById(String username) {
+        return Optional.ofNullable(users.get(username)).map(MemoryUsersRepository::copy);
+    }
+
+    @Override
+    public int insert(String username, String password, String email, String firstName, String lastName) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword(password);
+        user.setEmail(email);
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+
+        long[] sequence = new long[1];
+        users.compute(username, (key, previous) -> {
+            if (previous != null) {
+                throw new DataIntegrityViolationException(String.format("Duplicate username '%s'", username));
+            }
+            sequence[0] = journal.append(JournalRecord.of(user));
+            return user;
+        });
+
+        journal.commit(sequence[0]);
+        return 1;
+    }
+
+    @Override
+    public int updateDetails(String username, String email, String firstName, String lastName) {
+        return update(username, previous -> true, user -> {
+            user.setEmail(email);
+            user.setFirstName(firstName);
+            user.setLastName(lastName);
+        });
+    }
+
+    @Override
+    public int updatePassword(String username, String oldPassword, String newPassword) {
+        return update(username, previous -> Objects.equals(previous.getPassword(), oldPassword),
+                user -> user.setPassword(newPassword));
+    }
+
+    @Override
+    public void delete(User user) {
+        long[] sequence = new long[1];
+        users.computeIfPresent(user.getUsername(), (username, previous) -> {
+            sequence[0] = journal.append(new JournalRecord.UserDeleted(username));
+            return null;
+        });
+
+        journal.commit(sequence[0]);
+    }
+
+    /**
+     * Changes a copy of the stored user and stores it, if it exists and passes the condition
+     * @return the number of updated users
+     */
+    private int update(String username, Predicate<User> condition, Consumer<User> change) {
+        long[] sequence = new long[1];
+        int[] updated = new int[1];
+        users.computeIfPresent(username, (key, previous) -> {
+            if (!condition.test(previous)) {
+                return previous;
+            }
+            User user = copy(previous);
+            change.accept(user);
+            sequence[0] = journal.append(JournalRecord.of(user));
+            updated[0] = 1;
+            return user;
+        });
+
+        if (updated[0] > 0) {
+            journal.commit(sequence[0]);
+        }
+        return updated[0];
+    }
+
+    /**
+     * Applies a recovered record, without appending it to the journal. Only used before the server starts
+     */
+    void restore(JournalRecord.UserSaved record) {
+        User user = new User();
+        user.setUsername(record.username());
+        user.setPassword(record.password());
+        user.setEmail(record.email());
+        user.setFirstName(record.firstName());
+        user.setLastName(record.lastName());
+        users.put(user.getUsername(), user);
+    }
+
+    void restore(JournalRecord.UserDeleted record) {
+        users.remove(record.username());
+    }
+
+    /**
+     * Passes a record of every stored user, for a snapshot
+     */
+    void snapshot(Consumer<JournalRecord> out) {
+        users.values().forEach(user -> out.accept(JournalRecord.of(user)));
+    }
+
+    private static User copy(User user) {
+        User copy = new User();
+        copy.setUsername(user.getUsername());
+        copy.setPassword(user.getPassword());
+        copy.setEmail(user.getEmail());
+        copy.setFirstName(user.getFirstName());
+        copy.setLastName(user.getLastName());
+        return copy;
+    }
+}
@@ -0,0 +1,26 @@
+package tasker.api.repositories.memory;
+
+import tasker.api.resources.Task;
+
+import java.util.Comparator;
+
+/**
+ * Position of a task in its owner's list, in the listing order (priority desc, description asc, id asc)
+ */
+record TaskKey(int priority, String description, long id) implements Comparable<TaskKey> {
+
+    /** Constants */
+    private static final Comparator<TaskKey> ORDER = Comparator.comparingInt(TaskKey::priority).reversed()
+            .thenComparing(TaskKey::description, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingLong(TaskKey::id);
+
+
+    static TaskKey of(Task task) {
+        return new TaskKey(task.getPriority(), task.getDescription(), task.getId());
+    }
+
+    @Override
+    public int compareTo(TaskKey other) {
+        return ORDER.compare(this, other);
+    }
+}
@@ -0,0 +1,6 @@
+package tasker.api.requests.tasks;
+
+import tasker.api.models.TaskOperation;
+
+public record BatchTaskOperation(TaskOperation operation, Long id, String description, Integer priority) {
+}
@@ -0,0 +1,6 @@
+package tasker.api.requests.tasks;
+
+import java.util.List;
+
+public record BatchTaskRequest(List<BatchTaskOperation> operations) {
+}
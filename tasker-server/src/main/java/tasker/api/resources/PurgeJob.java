@@ -0,0 +1,41 @@
+package tasker.api.resources;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+/**
+ * Marks a deleted account whose tasks are still being purged. It is removed once the purge is done
+ */
+@Entity
+public class PurgeJob {
+
+    @Id
+    private String username;
+    private long deletedTasks;
+    private long requestedAt;
+
+    /* Leave empty constructor so that Spring can instantiate it */
+    public PurgeJob() {}
+
+    public PurgeJob(String username) {
+        this.username = username;
+        this.requestedAt = System.currentTimeMillis();
+    }
+
+    public PurgeJob(String username, long deletedTasks, long requestedAt) {
+        this.username = username;
+        this.deletedTasks = deletedTasks;
+        this.requestedAt = requestedAt;
+    }
+
+    /** GETTERS */
+    public String getUsername() {
+        return username;
+    }
+    public long getDeletedTasks() {
+        return deletedTasks;
+    }
+    public long getRequestedAt() {
+        return requestedAt;
+    }
+}
@@ -5,18 +5,35 @@ import jakarta.persistence.*;
 import java.util.Set;
 
 @Entity
+@Table(indexes = @Index(name = "idx_task_username_order", columnList = "username, priority DESC, description, id"))
 public class Task  {
 
+    /** Ids are reserved from the 'id_generator' table in blocks, so inserts do not need a round trip each */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "task_id")
+    @TableGenerator(name = "task_id", table = "id_generator", pkColumnName = "sequence_name", valueColumnName = "next_val",
+            pkColumnValue = "task", allocationSize = 50)
     private Long id;
     private String description;
     private Integer priority;
     private String username;
 
     /* Leave empty constructor so that Spring can generate a value to 'id' */
+    public Task() {
+    }
+
+    /** Builds a task holding the given values */
+    public Task(Long id, String description, Integer priority, String username) {
+        this.id = id;
+        this.description = description;
+        this.priority = priority;
+        this.username = username;
+    }
 
     /** SETTERS */
+    public void setId(Long id) {
+        this.id = id;
+    }
     public void setUsername(String username) {
         this.username = username;
     }
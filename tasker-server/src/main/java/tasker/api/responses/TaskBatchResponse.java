@@ -0,0 +1,18 @@
+package tasker.api.responses;
+
+import tasker.api.models.TaskBatchResult;
+
+import java.util.List;
+
+public class TaskBatchResponse extends ApiResponse {
+    private final List<TaskBatchResult> results;
+
+    public TaskBatchResponse(String message, List<TaskBatchResult> results) {
+        super(message);
+        this.results = results;
+    }
+
+    public List<TaskBatchResult> getResults() {
+        return results;
+    }
+}
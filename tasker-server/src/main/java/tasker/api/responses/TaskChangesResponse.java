@@ -0,0 +1,24 @@
+package tasker.api.responses;
+
+import tasker.api.models.TaskChange;
+
+import java.util.List;
+
+public class TaskChangesResponse extends ApiResponse {
+    private final long revision;
+    private final List<TaskChange> changes;
+
+    public TaskChangesResponse(String message, long revision, List<TaskChange> changes) {
+        super(message);
+        this.revision = revision;
+        this.changes = changes;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public List<TaskChange> getChanges() {
+        return changes;
+    }
+}
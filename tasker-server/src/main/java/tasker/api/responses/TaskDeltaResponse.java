@@ -0,0 +1,29 @@
+package tasker.api.responses;
+
+import tasker.api.models.TaskOperation;
+import tasker.api.resources.Task;
+
+public class TaskDeltaResponse extends ApiResponse {
+    private final TaskOperation operation;
+    private final Task task;
+    private final long version;
+
+    public TaskDeltaResponse(String message, TaskOperation operation, Task task, long version) {
+        super(message);
+        this.operation = operation;
+        this.task = task;
+        this.version = version;
+    }
+
+    public TaskOperation getOperation() {
+        return operation;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
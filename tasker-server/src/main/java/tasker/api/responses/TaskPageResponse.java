@@ -0,0 +1,18 @@
+package tasker.api.responses;
+
+import tasker.api.resources.Task;
+
+import java.util.List;
+
+public class TaskPageResponse extends TaskListResponse {
+    private final String nextCursor;
+
+    public TaskPageResponse(String message, List<Task> tasks, String nextCursor) {
+        super(message, tasks);
+        this.nextCursor = nextCursor;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
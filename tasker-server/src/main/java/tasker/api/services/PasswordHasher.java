@@ -0,0 +1,114 @@
+package tasker.api.services;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import tasker.api.exceptions.ServiceOverloadedException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashes and verifies passwords on a dedicated, bounded pool of threads
+ * <p>
+ * Password hashing is slow on purpose, so it is kept away from the request threads: only a few hashes run at once
+ * and a limited number wait for their turn. Any request beyond that fails right away instead of piling up and
+ * starving the cheaper endpoints
+ * </p>
+ */
+@Component
+public class PasswordHasher {
+
+    /** Constants */
+    public static final String ENCODER_ID = "bcrypt";
+    public static final String THREAD_NAME = "password-hasher-";
+
+    /**
+     * Result of a password verification
+     * @param matches the password is correct
+     * @param upgradedHash a new hash of the password when the stored one uses outdated parameters, or null
+     */
+    public record Verification(boolean matches, String upgradedHash) {}
+
+    /** Matches the plain text passwords stored before hashing was introduced */
+    private static class LegacyPasswordEncoder implements PasswordEncoder {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            throw new UnsupportedOperationException("Passwords are no longer stored in plain text");
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String storedPassword) {
+            return MessageDigest.isEqual(rawPassword.toString().getBytes(StandardCharsets.UTF_8),
+                    storedPassword.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /** Variables */
+    private final DelegatingPasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+
+    public PasswordHasher(@Value("${tasker.passwords.bcrypt-strength}") int strength,
+                          @Value("${tasker.passwords.threads}") int threads,
+                          @Value("${tasker.passwords.queue-size}") int queueSize) {
+        this.encoder = new DelegatingPasswordEncoder(ENCODER_ID, Map.of(ENCODER_ID, new BCryptPasswordEncoder(strength)));
+        this.encoder.setDefaultPasswordEncoderForMatches(new LegacyPasswordEncoder());
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+                runnable -> new Thread(runnable, THREAD_NAME + threadCount.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Hashes a new password
+     * @param password the raw password
+     * @return the hash to store
+     * @throws ServiceOverloadedException too many passwords are already being hashed
+     */
+    public String hash(String password) throws ServiceOverloadedException {
+        return run("Hash Password", () -> encoder.encode(password));
+    }
+
+    /**
+     * Verifies a password against its stored hash, rehashing it if the hash uses outdated parameters
+     * @param password the raw password
+     * @param storedHash the stored hash
+     * @return the verification result
+     * @throws ServiceOverloadedException too many passwords are already being hashed
+     */
+    public Verification verify(String password, String storedHash) throws ServiceOverloadedException {
+        return run("Verify Password", () -> {
+            if (!encoder.matches(password, storedHash)) {
+                return new Verification(false, null);
+            }
+
+            String upgradedHash = encoder.upgradeEncoding(storedHash) ? encoder.encode(password) : null;
+            return new Verification(true, upgradedHash);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T run(String operation, Callable<T> task) throws ServiceOverloadedException {
+        try {
+            return executor.submit(task).get();
+        } catch (RejectedExecutionException e) {
+            throw new ServiceOverloadedException(operation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException(operation);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package tasker.api.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tasker.TaskerServer;
+import tasker.api.repositories.memory.MemoryTransactionManager;
+import tasker.api.utils.Shell;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Makes sure a single server uses the database. Task list versions ({@link TaskListVersions}), the change feed
+ * ({@link TaskChangeLog}) and cached lists ({@link TaskListCache}) live in the server's memory: a second server would
+ * never see the first one's writes, and would answer 'If-None-Match' with 304 and stale lists
+ * <p>
+ * The server holds a lease row, renewed every 'tasker.lease.renew-interval' and expiring after 'tasker.lease.duration'.
+ * A server starting while another one holds the lease waits for it to expire, so a restart after a crash goes
+ * through, and fails to start if it does not. A server that loses its lease, because it could not renew it in time
+ * and another server took it, quits. Expiries are compared with each server's clock, so servers sharing a database
+ * must keep their clocks in sync
+ * </p>
+ */
+@Component
+@Profile("!" + MemoryTransactionManager.PROFILE)
+public class ServerLease {
+
+    /** Constants */
+    public static final int LEASE_ID = 1;
+    public static final int LEASE_LOST_ERROR = -3;
+    public static final Duration ACQUIRE_RETRY_INTERVAL = Duration.ofSeconds(1);
+    /** A single owner per process, shared by every application context in it */
+    private static final String OWNER = UUID.randomUUID().toString();
+
+    /** Variables */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${tasker.lease.duration}")
+    private Duration duration;
+
+
+    @PostConstruct
+    public void acquire() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + duration.toMillis() + ACQUIRE_RETRY_INTERVAL.toMillis();
+        while (!tryAcquire(OWNER, System.currentTimeMillis())) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Another server is using this database. Only one server may use it at a time");
+            }
+            Thread.sleep(ACQUIRE_RETRY_INTERVAL.toMillis());
+        }
+        Shell.getInstance().printFine("Acquired the server lease", "owner", OWNER);
+    }
+
+    @Scheduled(fixedDelayString = "${tasker.lease.renew-interval}", initialDelayString = "${tasker.lease.renew-interval}")
+    public void renew() {
+        if (!tryAcquire(OWNER, System.currentTimeMillis())) {
+            Shell.getInstance().printError("Lost the server lease to another server", "owner", OWNER);
+            TaskerServer.quitServer(LEASE_LOST_ERROR);
+        }
+    }
+
+    /**
+     * Lets the lease go, so the next server starts right away
+     */
+    @PreDestroy
+    public void release() {
+        jdbcTemplate.update("UPDATE server_lease SET expires_at = 0 WHERE id = ? AND owner = ?", LEASE_ID, OWNER);
+    }
+
+    /**
+     * Takes or extends the lease, if it is free, expired or already held by the given owner
+     * @return the owner holds the lease
+     */
+    boolean tryAcquire(String owner, long now) {
+        return jdbcTemplate.update("UPDATE server_lease SET owner = ?, expires_at = ? WHERE id = ? AND (owner = ? OR expires_at < ?)",
+                owner, now + duration.toMillis(), LEASE_ID, owner, now) == 1;
+    }
+}
@@ -0,0 +1,209 @@
+package tasker.api.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tasker.api.exceptions.ResyncRequiredException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which tasks changed at which list version, so clients can ask for the changes after the version they
+ * last saw instead of the whole list
+ * <p>
+ * Every committed task write moves the user's list into a new version (its revision) here, and the change is
+ * recorded under the same per-user lock. Changes older than 'tasker.changes.retention', or beyond the newest
+ * 'tasker.changes.max-entries' of a user, are dropped, and a client asking from before the oldest retained change
+ * has to fetch the whole list again. Only ids are kept: the changed tasks are read back from storage when asked for.
+ * Like the versions, changes are kept in this server's memory, which the {@link ServerLease} makes the only one
+ * </p>
+ * <p>
+ * The versions claimed by conditional writes are recorded too, without a task, so a client holding the version
+ * before a claim can still ask for the changes after it, whether the write went on to commit or not
+ * </p>
+ */
+@Component
+public class TaskChangeLog {
+
+    /**
+     * A task changed at a revision
+     * @param revision the list version of the task's latest change
+     * @param taskId the task's id
+     */
+    public record ChangedTask(long revision, long taskId) {}
+
+    /**
+     * The tasks changed after a revision
+     * @param revision the list version these changes lead to
+     * @param tasks one entry per changed task, oldest first
+     */
+    public record Changes(long revision, List<ChangedTask> tasks) {}
+
+    private record Entry(ChangedTask change, long recordedAt) {}
+
+    /** Task id of the entries recording a claimed version, which changed no task */
+    private static final long NO_TASK = -1;
+
+    /** A user's retained changes, oldest first, and the revision the oldest of them follows */
+    private static class UserLog {
+        private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+        private long floor;
+
+        UserLog(long floor) {
+            this.floor = floor;
+        }
+
+        void add(ChangedTask change, int maxEntries) {
+            entries.addLast(new Entry(change, System.currentTimeMillis()));
+            if (entries.size() > maxEntries) {
+                dropOldest();
+            }
+        }
+
+        void dropOldest() {
+            floor = entries.removeFirst().change().revision();
+        }
+    }
+
+    /** Variables */
+    private final Map<String, UserLog> logs = new ConcurrentHashMap<>();
+
+    @Autowired
+    private TaskListVersions taskListVersions;
+
+    @Value("${tasker.changes.retention}")
+    private Duration retention;
+    @Value("${tasker.changes.max-entries}")
+    private int maxEntries;
+
+
+    /**
+     * Moves the user's list into a new version, recording that a task changed at it
+     * @param username the task's owner
+     * @param taskId the changed task
+     * @return the new list version
+     */
+    public long record(String username, long taskId) {
+        long[] revision = new long[1];
+        logs.compute(username, (key, log) -> {
+            UserLog result = log == null ? new UserLog(taskListVersions.current(key)) : log;
+            revision[0] = taskListVersions.increment(key);
+            result.add(new ChangedTask(revision[0], taskId), maxEntries);
+            return result;
+        });
+
+        return revision[0];
+    }
+
+    /**
+     * Moves the user's list into a new version, only if it is still at the expected one, recording the claimed
+     * version. Used to check a write's precondition before applying it: of the concurrent writes expecting the same
+     * version, only one goes ahead
+     * @param username the list's owner
+     * @param expected the version the writer saw
+     * @return the list was at the expected version
+     * @see TaskListVersions#claim
+     */
+    public boolean claim(String username, long expected) {
+        boolean[] claimed = new boolean[1];
+        logs.compute(username, (key, log) -> {
+            UserLog result = log == null ? new UserLog(taskListVersions.current(key)) : log;
+            claimed[0] = taskListVersions.claim(key, expected);
+            if (!claimed[0]) {
+                return log;
+            }
+
+            result.add(new ChangedTask(expected + 1, NO_TASK), maxEntries);
+            return result;
+        });
+
+        return claimed[0];
+    }
+
+    /**
+     * Moves the user's list into a new version, forgetting its recorded changes. Used when the user's tasks change
+     * without knowing which ones, so every client has to fetch the whole list again
+     * @param username the list's owner
+     * @return the new list version
+     */
+    public long reset(String username) {
+        long[] revision = new long[1];
+        logs.compute(username, (key, log) -> {
+            revision[0] = taskListVersions.increment(key);
+            return null;
+        });
+
+        return revision[0];
+    }
+
+    /**
+     * Returns the tasks changed after a revision
+     * @param username the tasks' owner
+     * @param since the last revision the client saw
+     * @return the changed tasks and the current revision
+     * @throws ResyncRequiredException the changes after that revision are no longer retained, or the revision was
+     *                                 never given by this server
+     */
+    public Changes since(String username, long since) throws ResyncRequiredException {
+        Changes[] result = new Changes[1];
+        logs.computeIfPresent(username, (key, log) -> {
+            long current = taskListVersions.current(key);
+            if (since < log.floor || since > current) {
+                return log;
+            }
+
+            // Walk from the newest change back, keeping each task's latest change only
+            List<ChangedTask> changes = new ArrayList<>();
+            Set<Long> seen = new HashSet<>();
+            Iterator<Entry> newestFirst = log.entries.descendingIterator();
+            while (newestFirst.hasNext()) {
+                ChangedTask change = newestFirst.next().change();
+                if (change.revision() <= since) {
+                    break;
+                }
+                if (change.taskId() != NO_TASK && seen.add(change.taskId())) {
+                    changes.add(change);
+                }
+            }
+
+            Collections.reverse(changes);
+            result[0] = new Changes(current, changes);
+            return log;
+        });
+
+        // No retained changes: only the current revision is up to date
+        if (result[0] == null && !logs.containsKey(username) && since == taskListVersions.current(username)) {
+            return new Changes(since, List.of());
+        }
+        if (result[0] == null) {
+            throw new ResyncRequiredException(since);
+        }
+        return result[0];
+    }
+
+    /**
+     * Drops the changes older than the retention period, and the logs left empty
+     */
+    @Scheduled(fixedDelayString = "${tasker.changes.compaction-interval}")
+    public void compact() {
+        long cutoff = System.currentTimeMillis() - retention.toMillis();
+        for (String username : logs.keySet()) {
+            logs.computeIfPresent(username, (key, log) -> {
+                while (!log.entries.isEmpty() && log.entries.peekFirst().recordedAt() < cutoff) {
+                    log.dropOldest();
+                }
+                return log.entries.isEmpty() ? null : log;
+            });
+        }
+    }
+}
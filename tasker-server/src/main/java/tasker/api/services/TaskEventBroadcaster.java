@@ -0,0 +1,334 @@
+package tasker.api.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tasker.api.models.TaskMutation;
+import tasker.api.utils.Shell;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams the committed task writes of each user to that user's open event streams (Server-Sent Events)
+ * <p>
+ * Streams are asynchronous requests, so an idle stream holds a connection but no thread. Events are encoded once,
+ * queued per stream and written by a small shared pool of sender threads with non-blocking writes: when a client's
+ * socket is full, its stream waits for the container to report it writable again instead of holding the thread, so
+ * a stalled client never delays the others. A stream whose queue fills up, or that waits on its socket longer than
+ * 'tasker.events.send-timeout', is too slow to keep up and is closed: its client reconnects and fetches the list again
+ * </p>
+ * <p>
+ * Only the writes committed on this server are streamed
+ * </p>
+ */
+@Component
+public class TaskEventBroadcaster {
+
+    /** Constants */
+    public static final String TASK_EVENT = "task";
+    public static final String READY_EVENT = "ready";
+    public static final String THREAD_NAME = "task-events-";
+    public static final String SUBSCRIBERS_METRIC = "tasker.events.subscribers";
+    public static final String DROPPED_METRIC = "tasker.events.dropped";
+    public static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    /** Variables */
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService senders;
+    private final ObjectMapper objectMapper;
+    private final Counter dropped;
+    private final long timeout;
+    private final long sendTimeoutNanos;
+    private final int maxQueued;
+
+    public TaskEventBroadcaster(@Value("${tasker.events.timeout}") Duration timeout,
+                                @Value("${tasker.events.send-timeout}") Duration sendTimeout,
+                                @Value("${tasker.events.max-queued}") int maxQueued,
+                                @Value("${tasker.events.sender-threads}") int senderThreads,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry) {
+        this.timeout = timeout.toMillis();
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.maxQueued = maxQueued;
+        this.objectMapper = objectMapper;
+
+        AtomicLong threadCount = new AtomicLong();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder(SUBSCRIBERS_METRIC, subscriberCount, AtomicInteger::get)
+                .description("Open task event streams")
+                .register(meterRegistry);
+        this.dropped = Counter.builder(DROPPED_METRIC)
+                .description("Task event streams closed for not keeping up with their events")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Answers the request with an event stream of the user's task writes, continued asynchronously. The stream
+     * starts with a 'ready' event holding the current list version
+     * @param username the tasks' owner
+     * @param version the user's current list version
+     */
+    public void subscribe(String username, long version, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        AsyncContext context = request.startAsync();
+        context.setTimeout(timeout);
+        ServletOutputStream output = context.getResponse().getOutputStream();
+        Subscriber subscriber = new Subscriber(username, context, output);
+        context.addListener(subscriber);
+
+        subscribers.compute(username, (key, userSubscribers) -> {
+            Set<Subscriber> result = userSubscribers == null ? ConcurrentHashMap.newKeySet() : userSubscribers;
+            result.add(subscriber);
+            return result;
+        });
+        subscriberCount.incrementAndGet();
+        subscriber.offer(event(READY_EVENT, version, String.valueOf(version)));
+
+        // The container reports the stream writable right away, which starts draining
+        output.setWriteListener(subscriber);
+    }
+
+    /**
+     * Sends a committed task write to every open stream of the user
+     * @param username the tasks' owner
+     * @param mutation the write, with its list version already set
+     */
+    public void publish(String username, TaskMutation mutation) {
+        Set<Subscriber> userSubscribers = subscribers.get(username);
+        if (userSubscribers == null || userSubscribers.isEmpty()) {
+            return;
+        }
+
+        byte[] event;
+        try {
+            event = event(TASK_EVENT, mutation.getVersion(), objectMapper.writeValueAsString(mutation));
+        } catch (JsonProcessingException e) {
+            Shell.getInstance().printError(e.getMessage());
+            return;
+        }
+
+        for (Subscriber subscriber : userSubscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    /**
+     * Sends a comment to every open stream, so idle connections are not dropped by proxies and closed ones are
+     * noticed. Closes the streams that waited on their socket longer than the send timeout
+     */
+    @Scheduled(fixedDelayString = "${tasker.events.heartbeat-interval}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(subscriber -> {
+            long waitingSince = subscriber.waitingSince;
+            if (waitingSince != 0 && now - waitingSince > sendTimeoutNanos) {
+                subscriber.drop("Closing a stalled task event stream");
+            } else {
+                subscriber.offer(HEARTBEAT);
+            }
+        }));
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(Subscriber::close));
+        senders.shutdown();
+    }
+
+    private static byte[] event(String name, long id, String data) {
+        return ("event:" + name + "\nid:" + id + "\ndata:" + data + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.computeIfPresent(subscriber.username, (key, userSubscribers) -> {
+            if (userSubscribers.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+            return userSubscribers.isEmpty() ? null : userSubscribers;
+        });
+    }
+
+
+    /**
+     * An open stream and the encoded events waiting to be written to it. The stream is owned by one party at a time,
+     * the one that set 'draining': a sender thread writing it, or the container while the socket is full. Owners
+     * hand it over through 'onWritePossible', so writes never overlap
+     */
+    private class Subscriber implements WriteListener, AsyncListener {
+        private final String username;
+        private final AsyncContext context;
+        private final ServletOutputStream output;
+        private final Queue<byte[]> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean(true);
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile long waitingSince = System.nanoTime();
+        private volatile boolean closed;
+
+        Subscriber(String username, AsyncContext context, ServletOutputStream output) {
+            this.username = username;
+            this.context = context;
+            this.output = output;
+        }
+
+        void offer(byte[] event) {
+            if (closed) {
+                return;
+            }
+
+            if (queued.incrementAndGet() > maxQueued) {
+                drop("Closing a slow task event stream");
+                return;
+            }
+
+            queue.add(event);
+            schedule();
+        }
+
+        void drop(String reason) {
+            Shell.getInstance().printDebug(reason, "user", username);
+            dropped.increment();
+            close();
+        }
+
+        /**
+         * Closes the stream. One waiting on its socket is completed here, as no writer will come back to it
+         */
+        void close() {
+            remove(this);
+            if (waitingSince != 0) {
+                complete();
+            } else {
+                schedule();
+            }
+        }
+
+        void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        @Override
+        public void onWritePossible() {
+            waitingSince = 0;
+            senders.execute(this::drain);
+        }
+
+        /**
+         * Writes the queued events while the socket takes them, and completes the stream once it is closed
+         */
+        private void drain() {
+            try {
+                boolean unflushed = false;
+                do {
+                    while (!closed) {
+                        if (!output.isReady()) {
+                            // Keeps 'draining' until the container calls 'onWritePossible'
+                            waitingSince = System.nanoTime();
+                            if (closed) {
+                                complete();
+                            }
+                            return;
+                        }
+
+                        byte[] event = queue.poll();
+                        if (event != null) {
+                            queued.decrementAndGet();
+                            output.write(event);
+                            unflushed = true;
+                        } else if (unflushed) {
+                            output.flush();
+                            unflushed = false;
+                        } else {
+                            break;
+                        }
+                    }
+
+                    if (closed) {
+                        complete();
+                        return;
+                    }
+
+                    // Events offered, or a close requested, while giving the stream up are not missed
+                    draining.set(false);
+                } while ((closed || !queue.isEmpty()) && draining.compareAndSet(false, true));
+            } catch (IOException | RuntimeException e) {
+                remove(this);
+                complete();
+            }
+        }
+
+        private void complete() {
+            if (completed.compareAndSet(false, true)) {
+                queue.clear();
+                try {
+                    context.complete();
+                } catch (IllegalStateException e) {
+                    // Already completed by the container, after a timeout or an error
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            remove(this);
+            complete();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            remove(this);
+            complete();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            onError(event.getThrowable());
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            remove(this);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
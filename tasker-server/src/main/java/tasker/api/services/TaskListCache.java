@@ -0,0 +1,108 @@
+package tasker.api.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tasker.api.models.VersionedTaskList;
+import tasker.api.resources.Task;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * In-process cache of each user's sorted task list
+ * <p>
+ * The cache is capped by an estimate of the memory its lists take and evicts with Caffeine's TinyLFU policy.
+ * Its hit, miss and eviction counters are published as the 'cache.*' metrics with the 'cache=tasks' tag. Entries are
+ * only dropped on this server's writes, which the {@link ServerLease} makes the only ones
+ * </p>
+ */
+@Component
+public class TaskListCache {
+
+    /** Constants */
+    public static final String CACHE_NAME = "tasks";
+    private static final int LIST_OVERHEAD_BYTES = 32;
+    private static final int TASK_OVERHEAD_BYTES = 128;
+
+    /** Variables */
+    private final Cache<String, VersionedTaskList> cache;
+    private final TaskListVersions taskListVersions;
+    private final int maxEntryTasks;
+
+    public TaskListCache(TaskListVersions taskListVersions, MeterRegistry meterRegistry,
+                         @Value("${tasker.cache.max-bytes}") long maxBytes,
+                         @Value("${tasker.cache.max-entry-tasks}") int maxEntryTasks,
+                         @Value("${tasker.cache.expire-after-write}") Duration expireAfterWrite) {
+        this.taskListVersions = taskListVersions;
+        this.maxEntryTasks = maxEntryTasks;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher(TaskListCache::estimateBytes)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Returns the user's cached task list, loading and caching it if missing
+     * <p>
+     * A loaded list is tagged with the list version read before loading it, and only cached if that version did
+     * not change while it was being read, so that a write committing in the meantime can not leave a stale list
+     * behind. Lists bigger than the entry limit are never cached
+     * </p>
+     * @param username the list's owner
+     * @param loader reads the sorted list from the database
+     * @return the user's immutable task list and its version
+     */
+    public VersionedTaskList get(String username, Function<String, List<Task>> loader) {
+        VersionedTaskList cached = cache.getIfPresent(username);
+        if (cached != null) {
+            return cached;
+        }
+
+        long version = taskListVersions.current(username);
+        VersionedTaskList loaded = new VersionedTaskList(version, List.copyOf(loader.apply(username)));
+        if (loaded.tasks().size() <= maxEntryTasks) {
+            cache.asMap().compute(username, (key, current) -> taskListVersions.current(key) == version ? loaded : current);
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Returns the size of the user's cached list without loading it, nor counting the lookup in the cache's stats
+     * @param username the list's owner
+     * @return the number of cached tasks, -1 if the list is not cached
+     */
+    public int cachedSize(String username) {
+        VersionedTaskList cached = cache.policy().getIfPresentQuietly(username);
+        return cached != null ? cached.tasks().size() : -1;
+    }
+
+    /**
+     * Drops the user's cached list. Must be called after the user's list version is incremented
+     * @param username the list's owner
+     */
+    public void invalidate(String username) {
+        cache.invalidate(username);
+    }
+
+    /**
+     * Rough estimate of the heap taken by a cached list, counting each task's strings
+     */
+    private static int estimateBytes(String username, VersionedTaskList list) {
+        long bytes = LIST_OVERHEAD_BYTES + username.length();
+        for (Task task : list.tasks()) {
+            bytes += TASK_OVERHEAD_BYTES + task.getDescription().length() + task.getUsername().length();
+        }
+
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+}
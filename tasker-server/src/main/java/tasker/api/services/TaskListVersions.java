@@ -0,0 +1,55 @@
+package tasker.api.services;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a version number per user that grows every time the user's task list changes
+ * <p>
+ * Versions start from the server's boot time (in microseconds), so they keep growing across restarts. They are kept in
+ * this server's memory and only see its own writes, so the {@link ServerLease} keeps other servers off the database
+ * </p>
+ */
+@Component
+public class TaskListVersions {
+
+    /** Variables */
+    private final long initialVersion = System.currentTimeMillis() * 1000;
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the user's current list version
+     * @param username the list's owner
+     * @return current version
+     */
+    public long current(String username) {
+        return counter(username).get();
+    }
+
+    /**
+     * Moves the user's list into a new version
+     * @param username the list's owner
+     * @return the new version
+     */
+    public long increment(String username) {
+        return counter(username).incrementAndGet();
+    }
+
+    /**
+     * Moves the user's list into a new version, only if it is still at the expected one. Only called by
+     * {@link TaskChangeLog#claim}, which records the claimed version
+     * @param username the list's owner
+     * @param expected the version the writer saw
+     * @return the list was at the expected version
+     */
+    public boolean claim(String username, long expected) {
+        return counter(username).compareAndSet(expected, expected + 1);
+    }
+
+    private AtomicLong counter(String username) {
+        return versions.computeIfAbsent(username, key -> new AtomicLong(initialVersion));
+    }
+}
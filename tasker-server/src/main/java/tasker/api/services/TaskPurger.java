@@ -0,0 +1,81 @@
+package tasker.api.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import tasker.api.repositories.PurgeJobRepository;
+import tasker.api.repositories.TaskerRepository;
+import tasker.api.resources.PurgeJob;
+import tasker.api.utils.Shell;
+
+/**
+ * Deletes the tasks of deleted accounts in the background
+ * <p>
+ * Tasks are removed in bounded chunks, each in its own short transaction, so no lock is held for long. Progress is
+ * added to the account's {@link PurgeJob} in every chunk's transaction, so a purge interrupted by a restart just continues
+ * </p>
+ */
+@Component
+public class TaskPurger {
+
+    /** Constants */
+    public static final String DELETED_TASKS_METRIC = "tasker.purge.deleted.tasks";
+
+    /** Variables */
+    @Autowired
+    private PurgeJobRepository purgeJobRepository;
+    @Autowired
+    private TaskerRepository taskerRepository;
+    @Autowired
+    private TaskerService taskerService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${tasker.purge.chunk-size}")
+    private int chunkSize;
+
+    private final Counter deletedTasks;
+
+    public TaskPurger(MeterRegistry meterRegistry) {
+        this.deletedTasks = Counter.builder(DELETED_TASKS_METRIC)
+                .description("Tasks removed by the purge of deleted accounts")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${tasker.purge.interval}")
+    public void purge() {
+        for (PurgeJob job : purgeJobRepository.findAll()) {
+            purge(job);
+        }
+    }
+
+    /**
+     * Purges an account's tasks. The job's count is only added to once its chunk is committed, so a chunk rolled back
+     * is never counted, and it is updated in place rather than saved whole
+     */
+    private void purge(PurgeJob job) {
+        String username = job.getUsername();
+        long purged = job.getDeletedTasks();
+        int deleted;
+
+        do {
+            deleted = transactionTemplate.execute(status -> {
+                int count = taskerRepository.deleteChunkByUsername(username, chunkSize);
+                purgeJobRepository.addDeletedTasks(username, count);
+                taskerService.invalidateOnCommit(username);
+                return count;
+            });
+
+            purged += deleted;
+            deletedTasks.increment(deleted);
+            Shell.getInstance().printDebug("Purging tasks", "user", username, "deleted", purged);
+        } while (deleted == chunkSize);
+
+        purgeJobRepository.delete(job);
+        Shell.getInstance().printFine("Purge is done", "user", username, "deleted", purged);
+    }
+}
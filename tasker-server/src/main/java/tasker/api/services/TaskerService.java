@@ -2,34 +2,68 @@ package tasker.api.services;
 
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import tasker.api.exceptions.InvalidRequestDataException;
+import tasker.api.exceptions.ResyncRequiredException;
 import tasker.api.exceptions.TaskDoesNotExistException;
+import tasker.api.exceptions.TaskListChangedException;
+import tasker.api.models.TaskBatchResult;
+import tasker.api.models.TaskChange;
+import tasker.api.models.TaskChanges;
+import tasker.api.models.TaskCursor;
 import tasker.api.models.TaskModel;
+import tasker.api.models.TaskMutation;
+import tasker.api.models.TaskOperation;
+import tasker.api.models.TaskPage;
+import tasker.api.models.VersionedTaskList;
 import tasker.api.repositories.TaskerRepository;
+import tasker.api.requests.tasks.BatchTaskOperation;
 import tasker.api.resources.Task;
 import tasker.api.resources.User;
 import tasker.api.utils.Utils;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 
 @Service
 public class TaskerService {
 
+    /** Constants */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int MAX_BATCH_OPERATIONS = 1000;
+    public static final int STREAM_CHUNK_SIZE = 500;
+    public static final String BATCH_INVALID_DATA_ERROR = "Invalid data was sent. There may be empty values";
+    public static final String BATCH_TASK_DOES_NOT_EXIST_ERROR = "No task was found with the provided id";
+    /** Lists are always of a single user, so the leading username changes nothing but matches the listing index's
+     *  columns, which lets every database read the tasks in index order instead of sorting them */
+    public static final Sort TASK_ORDER = Sort.by(Sort.Order.asc("username"), Sort.Order.desc("priority"), Sort.Order.asc("description"), Sort.Order.asc("id"));
+
     @Autowired
     private TaskerRepository taskerRepository;
+    @Autowired
+    private TaskListVersions taskListVersions;
+    @Autowired
+    private TaskListCache taskListCache;
+    @Autowired
+    private TaskChangeLog taskChangeLog;
+    @Autowired
+    private TaskEventBroadcaster taskEventBroadcaster;
 
     /**
      * Adds a new task to the db. There can be tasks with the same description and priority, since they will have different ids
      * @param description the task's description
      * @param priority the task's priority
-     * @return all tasks
+     * @return the added task
      * @throws InvalidRequestDataException there is corrupt data being sent
      */
     @Transactional
-    public List<Task> add(String username, String description, Integer priority) throws InvalidRequestDataException {
+    public TaskMutation add(String username, String description, Integer priority) throws InvalidRequestDataException {
         if (Utils.isStringNull(description) || priority == null) {
             throw new InvalidRequestDataException("Add Task");
         }
@@ -40,14 +74,21 @@ public class TaskerService {
         task.setDescription(description);
         task.setPriority(priority);
         taskerRepository.save(task);
-        return getAllTasks(username);
+        return onCommit(username, TaskOperation.ADD, task);
     }
 
+    /**
+     * Updates a task, only if the user's list is still at the expected version
+     * @param expectedVersion the list version the client saw, or null to update unconditionally
+     * @throws TaskListChangedException the list changed since the expected version
+     */
     @Transactional
-    public List<Task> update(String username, TaskModel model) throws InvalidRequestDataException, TaskDoesNotExistException {
+    public TaskMutation update(String username, TaskModel model, Long expectedVersion) throws InvalidRequestDataException,
+            TaskDoesNotExistException, TaskListChangedException {
         if (model.isDataCorrupt()) {
             throw new InvalidRequestDataException("Add Task");
         }
+        checkVersion(username, expectedVersion);
 
         // Check Task existence
         Optional<Task> query = taskerRepository.findByIdAndUsername(model.id(), username);
@@ -60,14 +101,21 @@ public class TaskerService {
         result.setDescription(model.description());
         result.setPriority(model.priority());
         taskerRepository.save(result);
-        return getAllTasks(username);
+        return onCommit(username, TaskOperation.UPDATE, result);
     }
 
+    /**
+     * Deletes a task, only if the user's list is still at the expected version
+     * @param expectedVersion the list version the client saw, or null to delete unconditionally
+     * @throws TaskListChangedException the list changed since the expected version
+     */
     @Transactional
-    public List<Task> delete(String username, Long id) throws InvalidRequestDataException, TaskDoesNotExistException {
+    public TaskMutation delete(String username, Long id, Long expectedVersion) throws InvalidRequestDataException,
+            TaskDoesNotExistException, TaskListChangedException {
         if (id == null) {
             throw new InvalidRequestDataException("Delete Task");
         }
+        checkVersion(username, expectedVersion);
 
         // Check task existence
         Optional<Task> query = taskerRepository.findByIdAndUsername(id, username);
@@ -75,8 +123,79 @@ public class TaskerService {
             throw new TaskDoesNotExistException();
         }
 
-        taskerRepository.deleteById(id);
-        return getAllTasks(username);
+        Task result = query.get();
+        taskerRepository.delete(result);
+        return onCommit(username, TaskOperation.DELETE, result);
+    }
+
+    /**
+     * Applies a list of task operations in a single transaction. Every task they target is loaded with one query,
+     * and the resulting inserts, updates and deletes are sent to the database as JDBC batches
+     * <p>
+     * Operations with invalid data or targeting a missing task are skipped and reported, without failing the rest
+     * </p>
+     * @param username the tasks' owner
+     * @param operations the operations to apply, in order
+     * @return one result per operation, in the same order
+     * @throws InvalidRequestDataException the batch is empty, too big or has empty operations
+     */
+    @Transactional
+    public List<TaskBatchResult> batch(String username, List<BatchTaskOperation> operations) throws InvalidRequestDataException {
+        if (operations == null || operations.isEmpty() || operations.size() > MAX_BATCH_OPERATIONS || operations.contains(null)) {
+            throw new InvalidRequestDataException("Batch Tasks");
+        }
+
+        // Load all targeted tasks at once
+        Set<Long> ids = new HashSet<>();
+        operations.forEach(operation -> {
+            if (operation.id() != null) ids.add(operation.id());
+        });
+        Map<Long, Task> tasks = new HashMap<>();
+        taskerRepository.findByUsernameAndIdIn(username, ids).forEach(task -> tasks.put(task.getId(), task));
+
+        // Apply operations
+        List<TaskBatchResult> results = new ArrayList<>(operations.size());
+        List<Task> saved = new ArrayList<>();
+        List<Task> deleted = new ArrayList<>();
+        for (int index = 0; index < operations.size(); index++) {
+            BatchTaskOperation operation = operations.get(index);
+            if (isBatchOperationCorrupt(operation)) {
+                results.add(TaskBatchResult.skipped(index, operation.operation(), BATCH_INVALID_DATA_ERROR));
+                continue;
+            }
+
+            Task task = switch (operation.operation()) {
+                case ADD -> new Task();
+                case UPDATE -> tasks.get(operation.id());
+                case DELETE -> tasks.remove(operation.id());
+            };
+            if (task == null) {
+                results.add(TaskBatchResult.skipped(index, operation.operation(), BATCH_TASK_DOES_NOT_EXIST_ERROR));
+                continue;
+            }
+
+            switch (operation.operation()) {
+                case ADD -> {
+                    task.setUsername(username);
+                    task.setDescription(operation.description());
+                    task.setPriority(operation.priority());
+                    saved.add(task);
+                }
+                case UPDATE -> {
+                    task.setDescription(operation.description());
+                    task.setPriority(operation.priority());
+                    saved.add(task);
+                }
+                case DELETE -> deleted.add(task);
+            }
+
+            results.add(TaskBatchResult.applied(index, onCommit(username, operation.operation(), task)));
+        }
+
+        // Updated tasks are saved too, since not every storage tracks changes to loaded tasks
+        taskerRepository.saveAll(saved);
+        taskerRepository.deleteAll(deleted);
+        return results;
     }
 
     public Task getTask(String username, Long id) throws InvalidRequestDataException, TaskDoesNotExistException {
@@ -93,16 +212,184 @@ public class TaskerService {
         return query.get();
     }
 
-    public List<Task>  getAllTasks(String username) {
-        Sort sort = Sort.by(Sort.Order.desc("priority"), Sort.Order.asc("description"));
-        Iterator<Task> pointer = taskerRepository.findByUsername(username, sort).iterator();
-        List<Task> tasks = new LinkedList<>();
+    /**
+     * Returns the version of the user's task list, which changes on every committed write
+     * @param username the list's owner
+     * @return current list version
+     */
+    public long getListVersion(String username) {
+        return taskListVersions.current(username);
+    }
+
+    public List<Task> getAllTasks(String username) {
+        return getTaskList(username).tasks();
+    }
+
+    /**
+     * Retrieves the user's whole task list along with the list version it holds
+     * @param username the tasks' owner
+     * @return the list and its version
+     */
+    public VersionedTaskList getTaskList(String username) {
+        return taskListCache.get(username, key -> taskerRepository.findByUsername(key, TASK_ORDER));
+    }
+
+    /**
+     * Passes the user's tasks, in the listing order, a chunk at a time. Each chunk is read with its own query, so a
+     * database connection is only held while reading it, never while the action runs: a slow client receiving the
+     * tasks does not keep a connection from the pool. The list is never held whole, and the cache is bypassed, since
+     * lists too large for it are the ones worth streaming
+     * <p>
+     * Chunks continue from the last task read, so they are not a snapshot of the list: a task moved in the order by a
+     * concurrent write may be passed twice, or not at all. The writes made while streaming are in the change feed
+     * </p>
+     * @param username the tasks' owner
+     * @param action called once per chunk, in order
+     */
+    public void forEachTaskChunk(String username, Consumer<List<Task>> action) {
+        Limit chunkLimit = Limit.of(STREAM_CHUNK_SIZE);
+        List<Task> chunk = taskerRepository.findByUsername(username, TASK_ORDER, chunkLimit);
+        while (!chunk.isEmpty()) {
+            action.accept(chunk);
+            if (chunk.size() < STREAM_CHUNK_SIZE) {
+                return;
+            }
+
+            Task last = chunk.get(chunk.size() - 1);
+            chunk = taskerRepository.findByUsernameAfter(username, last.getPriority(), last.getDescription(), last.getId(), chunkLimit);
+        }
+    }
+
+    /**
+     * Retrieves the user's task changes after a revision: the current state of every task changed since then, and a
+     * tombstone for every task deleted since then
+     * @param username the tasks' owner
+     * @param since the last revision the client saw
+     * @return the changes, oldest first, and the revision to ask the following changes from
+     * @throws ResyncRequiredException the changes after that revision are no longer retained, so the whole list must
+     *                                 be fetched again
+     */
+    public TaskChanges getChanges(String username, long since) throws ResyncRequiredException {
+        TaskChangeLog.Changes changes = taskChangeLog.since(username, since);
+        if (changes.tasks().isEmpty()) {
+            return new TaskChanges(changes.revision(), List.of());
+        }
+
+        // Read the changed tasks after the revision, so none of their changes up to it is missed
+        Set<Long> ids = new HashSet<>();
+        changes.tasks().forEach(changed -> ids.add(changed.taskId()));
+        Map<Long, Task> tasks = new HashMap<>();
+        taskerRepository.findByUsernameAndIdIn(username, ids).forEach(task -> tasks.put(task.getId(), task));
+
+        List<TaskChange> result = new ArrayList<>(changes.tasks().size());
+        for (TaskChangeLog.ChangedTask changed : changes.tasks()) {
+            Task task = tasks.get(changed.taskId());
+            result.add(task == null ? TaskChange.deleted(changed.revision(), changed.taskId()) : TaskChange.saved(changed.revision(), task));
+        }
+        return new TaskChanges(changes.revision(), result);
+    }
+
+    /**
+     * Retrieves a page of the user's tasks, continuing from where the previous page stopped
+     * @param username the tasks' owner
+     * @param cursor the previous page's cursor, or null for the first page
+     * @param limit max number of tasks to retrieve, or null for the default page size
+     * @return the page and the cursor to continue from
+     * @throws InvalidRequestDataException the limit is out of bounds or the cursor is corrupt
+     */
+    public TaskPage getTasksPage(String username, String cursor, Integer limit) throws InvalidRequestDataException {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new InvalidRequestDataException("Task Page");
+        }
+
+        // Fetch one extra task to know whether there is a next page
+        Limit fetchLimit = Limit.of(pageSize + 1);
+        List<Task> tasks;
+        if (cursor == null) {
+            tasks = taskerRepository.findByUsername(username, TASK_ORDER, fetchLimit);
+        } else {
+            TaskCursor after = TaskCursor.decode(cursor);
+            tasks = taskerRepository.findByUsernameAfter(username, after.priority(), after.description(), after.id(), fetchLimit);
+        }
+
+        if (tasks.size() <= pageSize) {
+            return new TaskPage(tasks, null);
+        }
+
+        List<Task> page = tasks.subList(0, pageSize);
+        return new TaskPage(page, TaskCursor.after(page.get(pageSize - 1)).encode());
+    }
+
+    /**
+     * Moves the user's list into a new version and drops its cached copy once the current transaction commits. The
+     * changes are not recorded one by one, so clients of the change feed have to fetch the whole list again. Used
+     * when the user's tasks are changed outside this service
+     * @param username the list's owner
+     */
+    public void invalidateOnCommit(String username) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                taskChangeLog.reset(username);
+                taskListCache.invalidate(username);
+            }
+        });
+    }
+
+    /**
+     * Checks a write's precondition. A write that passes moves the list into a new version right away, recorded in
+     * the change log, so a concurrent write expecting the same version fails. The version moves again once the write
+     * commits
+     * <p>
+     * A write that ends without changing the list, because it failed, rolled back or found no task, still leaves the
+     * list at the claimed version, which is never moved back: it may already have been sent to event streams. So the
+     * cached list, still tagged with the expected version, is dropped once the transaction completes either way
+     * </p>
+     */
+    private void checkVersion(String username, Long expectedVersion) throws TaskListChangedException {
+        if (expectedVersion == null) {
+            return;
+        }
+        if (!taskChangeLog.claim(username, expectedVersion)) {
+            throw new TaskListChangedException(expectedVersion);
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                taskListCache.invalidate(username);
+            }
+        });
+    }
 
-        // Add tasks
-        while (pointer.hasNext()) {
-            tasks.add(pointer.next());
+    private boolean isBatchOperationCorrupt(BatchTaskOperation operation) {
+        if (operation.operation() == null) {
+            return true;
         }
 
-        return tasks;
+        return switch (operation.operation()) {
+            case ADD -> Utils.isStringNull(operation.description()) || operation.priority() == null;
+            case UPDATE -> new TaskModel(operation.id(), operation.description(), operation.priority()).isDataCorrupt();
+            case DELETE -> operation.id() == null;
+        };
+    }
+
+    /**
+     * Wraps a task write into a mutation, which is given the user's new list version and sent to the user's event
+     * streams once the transaction commits
+     */
+    private TaskMutation onCommit(String username, TaskOperation operation, Task task) {
+        TaskMutation mutation = new TaskMutation(operation, task);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                mutation.setVersion(taskChangeLog.record(username, task.getId()));
+                taskListCache.invalidate(username);
+                taskEventBroadcaster.publish(username, mutation);
+            }
+        });
+
+        return mutation;
     }
 }
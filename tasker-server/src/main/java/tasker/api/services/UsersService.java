@@ -2,11 +2,14 @@ package tasker.api.services;
 
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import tasker.api.exceptions.*;
 import tasker.api.models.UserModel;
-import tasker.api.repositories.TaskerRepository;
+import tasker.api.repositories.PurgeJobRepository;
 import tasker.api.repositories.UsersRepository;
+import tasker.api.resources.PurgeJob;
 import tasker.api.resources.User;
 import tasker.api.utils.Utils;
 
@@ -21,10 +24,17 @@ public class UsersService {
     @Autowired
     private UsersRepository usersRepository;
     @Autowired
-    private TaskerRepository taskerRepository;
+    private PurgeJobRepository purgeJobRepository;
+    @Autowired
+    private TaskerService taskerService;
+    @Autowired
+    private PasswordHasher passwordHasher;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
-    @Transactional
-    public void add(UserModel model) throws InvalidRequestDataException, UserAlreadyExistsException, NewPasswordIsToShortException, InvalidEmailException {
+    /* Not transactional: no database connection may be held while the password waits for the hasher. The user is
+     * inserted in its own short transaction afterwards */
+    public void add(UserModel model) throws InvalidRequestDataException, UserAlreadyExistsException, NewPasswordIsToShortException, InvalidEmailException, ServiceOverloadedException {
         if (model.isDataCorrupt()) {
             throw new InvalidRequestDataException("Create User");
         }
@@ -37,20 +47,23 @@ public class UsersService {
             throw new NewPasswordIsToShortException(MIN_PASSWORD_CHARS);
         }
 
-        // Check user existence
-        Optional<User> query = usersRepository.findById(model.username());
-        if (query.isPresent()) {
+        // Check user existence before hashing, so taken usernames are answered right away
+        if (usernameTaken(model.username())) {
+            throw new UserAlreadyExistsException(model.username());
+        }
+        String password = passwordHasher.hash(model.password());
+
+        // Create new user. Checked again, since another registration may have taken the username while hashing: the
+        // insert fails instead of overwriting it
+        try {
+            Boolean created = transactionTemplate.execute(status -> !usernameTaken(model.username())
+                    && usersRepository.insert(model.username(), password, model.email(), model.firstName(), model.lastName()) == 1);
+            if (!Boolean.TRUE.equals(created)) {
+                throw new UserAlreadyExistsException(model.username());
+            }
+        } catch (DataIntegrityViolationException e) {
             throw new UserAlreadyExistsException(model.username());
         }
-
-        // Create new user
-        User user = new User();
-        user.setEmail(model.email());
-        user.setUsername(model.username());
-        user.setPassword(model.password());
-        user.setFirstName(model.firstName());
-        user.setLastName(model.lastName());
-        usersRepository.save(user);
     }
 
     /**
@@ -63,36 +76,37 @@ public class UsersService {
      * @throws InvalidRequestDataException data is corrupt
      * @throws UserDoesNotExistException   user already exists in the system
      * @throws UserNotAuthorizedException  user does not have the authorization required to update
+     * @throws ServiceOverloadedException  too many passwords are being verified at the moment
      */
-    @Transactional
-    public void update(UserModel model) throws InvalidRequestDataException, UserDoesNotExistException, UserNotAuthorizedException {
+    /* Not transactional: no database connection may be held while the password waits for the hasher */
+    public void update(UserModel model) throws InvalidRequestDataException, UserDoesNotExistException, UserNotAuthorizedException, ServiceOverloadedException {
         if (model.isDataCorrupt()) {
             throw new InvalidRequestDataException("Update User");
         }
 
-        // Check user existence
-        Optional<User> query = usersRepository.findById(model.username());
-        if (query.isEmpty()) {
-            throw new UserDoesNotExistException();
-        }
-
-        // Authenticate user
+        // Authenticate user, which also checks its existence
         if (!authenticateUser(model.username(), model.password())) {
             throw new UserNotAuthorizedException("Wrong password");
         }
 
-        // Update user
-        User user = query.get();
-        user.setEmail(model.email());
-        user.setFirstName(model.firstName());
-        user.setLastName(model.lastName());
-        usersRepository.save(user);
+        // Update user. Only its details are written, so a concurrent rehash is kept, and a user deleted meanwhile
+        // stays deleted
+        if (usersRepository.updateDetails(model.username(), model.email(), model.firstName(), model.lastName()) == 0) {
+            throw new UserDoesNotExistException();
+        }
     }
 
+    /**
+     * Deletes the user and schedules the purge of all of its tasks, which is done in the background by the
+     * {@link TaskPurger}. The user must already be authenticated
+     * @param username the authenticated user's username
+     * @throws InvalidRequestDataException the request data is corrupt
+     * @throws UserDoesNotExistException the user does not exist in the system
+     */
     @Transactional
-    public void delete(String username, String token, String tokenSecret) throws InvalidRequestDataException, UserDoesNotExistException, UserNotAuthorizedException {
-        if (Utils.isStringNull(username) || Utils.isStringNull(token) || Utils.isStringNull(tokenSecret)) {
-            throw new InvalidRequestDataException("User Authentication");
+    public void delete(String username) throws InvalidRequestDataException, UserDoesNotExistException {
+        if (Utils.isStringNull(username)) {
+            throw new InvalidRequestDataException("Delete User");
         }
 
         // Check user existence
@@ -101,30 +115,23 @@ public class UsersService {
             throw new UserDoesNotExistException();
         }
 
-        // Authenticate user
-        if (!Utils.validateAuthToken(token, tokenSecret, username)) {
-            throw new UserNotAuthorizedException("Invalid session token");
-        }
-
         // Delete user
         User user = query.get();
         usersRepository.delete(user);
-        taskerRepository.deleteByUsername(username);
+        purgeJobRepository.save(new PurgeJob(username));
+        taskerService.invalidateOnCommit(username);
     }
 
     /**
-     * Retrieves user info given its username and auth token. The secret used must be provided as well
-     * @param username
-     * @param token
-     * @param tokenSecret the secret used during the token creation
+     * Retrieves user info given its username. The user must already be authenticated
+     * @param username the authenticated user's username
      * @return the given user
      * @throws InvalidRequestDataException the request data is corrupt
      * @throws UserDoesNotExistException the user does not exist in the system
-     * @throws UserNotAuthorizedException the user is not authorized for the procedure
      */
-    public User get(String username, String token, String tokenSecret) throws InvalidRequestDataException, UserDoesNotExistException, UserNotAuthorizedException {
-        if (Utils.isStringNull(username) || Utils.isStringNull(token) || Utils.isStringNull(tokenSecret)) {
-            throw new InvalidRequestDataException("User Authentication");
+    public User get(String username) throws InvalidRequestDataException, UserDoesNotExistException {
+        if (Utils.isStringNull(username)) {
+            throw new InvalidRequestDataException("Get User");
         }
 
         Optional<User> query = usersRepository.findById(username);
@@ -132,21 +139,17 @@ public class UsersService {
             throw new UserDoesNotExistException();
         }
 
-        // Authenticate user
-        if (!Utils.validateAuthToken(token, tokenSecret, username)) {
-            throw new UserNotAuthorizedException("Wrong password");
-        }
-
         return query.get();
     }
 
     /**
-     * Validates the user password
+     * Validates the user password. When the stored hash uses outdated parameters (or is still plain text), it is
+     * replaced by a new hash of the validated password
      * @param username username of the user to find
      * @param password its password to validate
      * @return password is correct or not for the given user
      */
-    public boolean authenticateUser(String username, String password) throws InvalidRequestDataException, UserDoesNotExistException {
+    public boolean authenticateUser(String username, String password) throws InvalidRequestDataException, UserDoesNotExistException, ServiceOverloadedException {
         if (Utils.isStringNull(username) || Utils.isStringNull(password)) {
             throw new InvalidRequestDataException("User Authentication");
         }
@@ -158,7 +161,20 @@ public class UsersService {
         }
 
         User user = query.get();
-        return user.getPassword().equals(password);
+        PasswordHasher.Verification verification = passwordHasher.verify(password, user.getPassword());
+        if (verification.upgradedHash() != null) {
+            // Only replaces the hash that was verified: a user deleted or changed meanwhile is left as it is
+            usersRepository.updatePassword(username, user.getPassword(), verification.upgradedHash());
+        }
+
+        return verification.matches();
+    }
+
+    /**
+     * The username of a deleted account is only released once its tasks are purged
+     */
+    private boolean usernameTaken(String username) {
+        return usersRepository.findById(username).isPresent() || purgeJobRepository.existsById(username);
     }
 
     /**
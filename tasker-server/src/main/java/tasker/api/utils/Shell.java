@@ -1,11 +1,45 @@
 package tasker.api.utils;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
 /**
  * Class  Shell  handles the printing and logging of the system
+ * <p>
+ * Lines are not written by the threads printing them: each becomes an entry of a bounded lock-free ring buffer, and a
+ * background writer thread formats the queued entries and writes them to stdout in batches. Printing threads never
+ * wait for stdout nor for each other. Entries below the current level are discarded before anything is formatted,
+ * and the key/value fields of an entry are only turned into text by the writer thread
+ * </p>
+ * <p>
+ * When the buffer is full, entries are either dropped and counted, or their threads wait for room, depending on the
+ * {@link OverflowPolicy}. Entries still queued when the JVM exits are written by a shutdown hook
+ * </p>
  * @author Francisco Parrinha
  */
 public class Shell {
 
+    /** Levels of the printed entries, from the least to the most important */
+    public enum Level {
+        DEBUG(DEBUG_ENTRY), FINE(FINE_ENTRY), RESULT(RESULT_ENTRY), ERROR(ERROR_ENTRY);
+
+        private final String label;
+
+        Level(String label) {
+            this.label = label;
+        }
+    }
+
+    /** What printing threads do when the buffer is full */
+    public enum OverflowPolicy {
+        /** The entry is discarded and counted in {@link #getDroppedCount()} */
+        DROP,
+        /** The thread waits until the writer makes room */
+        BLOCK
+    }
+
     /** Constants */
     public static final String DASH = "> ";
     public static final String EMPTY = " ";
@@ -13,13 +47,48 @@ public class Shell {
     public static final String DEBUG_ENTRY = "DEBUG: ";
     public static final String FINE_ENTRY = "FINE: ";
     public static final String ERROR_ENTRY = "ERROR: ";
+    public static final String FIELD_SEPARATOR = "=";
+    public static final String DROPPED_MSG = "Shell buffer was full, entries were dropped";
+    public static final String WRITER_THREAD_NAME = "shell-writer";
+    public static final int BUFFER_CAPACITY = 1 << 14;
+    public static final long IDLE_PARK_NANOS = 100_000_000L;
+    public static final long FULL_PARK_NANOS = 50_000L;
+    public static final long CLOSE_TIMEOUT_MILLIS = 2000L;
+
+    private static final Object[] NO_FIELDS = new Object[0];
+    private static final Shell INSTANCE = new Shell(true);
+
+    /** A buffer slot, reused by every entry that goes through it */
+    private static class Entry {
+        private Level level;
+        private String text;
+        private Object[] fields;
+    }
 
     /** Variables */
-    private static Shell instance;
-    private boolean debugOn;
+    private final Entry[] entries = new Entry[BUFFER_CAPACITY];
+    private final AtomicLongArray sequences = new AtomicLongArray(BUFFER_CAPACITY);
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private long head;
+    private volatile long written;
+    private volatile boolean writerWaiting;
+    private volatile boolean closing;
+    private volatile Level level;
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
 
     private Shell(boolean debugState) {
-        this.debugOn = debugState;
+        setDebugState(debugState);
+        for (int i = 0; i < BUFFER_CAPACITY; i++) {
+            entries[i] = new Entry();
+            sequences.set(i, i);
+        }
+
+        writer = new Thread(this::writeEntries, WRITER_THREAD_NAME);
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close));
     }
 
     /**
@@ -27,7 +96,7 @@ public class Shell {
      * @return self instance
      */
     public static Shell getInstance() {
-        return instance == null ? (instance = new Shell(true)) : instance;
+        return INSTANCE;
     }
 
     /**
@@ -36,13 +105,8 @@ public class Shell {
      * @return self instance
      */
     public static Shell getInstance(boolean debugState) {
-        if(instance == null) {
-            return instance = new Shell(debugState);
-        }
-
-        // Return existing instance
-        instance.setDebugState(debugState);
-        return instance;
+        INSTANCE.setDebugState(debugState);
+        return INSTANCE;
     }
 
     /**
@@ -50,55 +114,72 @@ public class Shell {
      * @param text the output text
      */
     public void printLine(String text){
-        System.out.println(DASH + text);
+        print(null, text, NO_FIELDS);
     }
 
     /**
-     * Prints the input DASH
+     * Prints the input DASH, after every queued line
      */
     public void printInput() {
+        flush();
         System.out.print(DASH);
+        System.out.flush();
     }
 
     /**
-     * Prints a new line and adds the input DASH
+     * Prints a new line and adds the input DASH, after every queued line
      * @param text the output text
      */
     public void printLineInput(String text){
+        flush();
         System.out.println(DASH + text);
         System.out.print(DASH);
+        System.out.flush();
     }
 
     /**
      * Prints text with a 'debug' label
      * @param text debug to print
+     * @param fields alternating keys and values appended to the text, formatted by the writer thread
      */
-    public void printDebug(String text) {
-        if (debugOn) printLine(DEBUG_ENTRY + text);
+    public void printDebug(String text, Object... fields) {
+        print(Level.DEBUG, text, fields);
     }
 
     /**
      * Prints text with a 'result' label
      * @param text result to print
+     * @param fields alternating keys and values appended to the text, formatted by the writer thread
      */
-    public void printResult(String text) {
-        printLine(RESULT_ENTRY + text);
+    public void printResult(String text, Object... fields) {
+        print(Level.RESULT, text, fields);
     }
 
     /**
      * Prints text with a 'fine' label
      * @param text text to print
+     * @param fields alternating keys and values appended to the text, formatted by the writer thread
      */
-    public void printFine(String text) {
-        printLine(FINE_ENTRY + text);
+    public void printFine(String text, Object... fields) {
+        print(Level.FINE, text, fields);
     }
 
     /**
      * Prints text with a 'error' label
      * @param text error to print
+     * @param fields alternating keys and values appended to the text, formatted by the writer thread
      */
-    public void printError(String text) {
-        printLine(ERROR_ENTRY + text);
+    public void printError(String text, Object... fields) {
+        print(Level.ERROR, text, fields);
+    }
+
+    /**
+     * Checks whether entries of a level are printed, so callers can skip building costly texts
+     * @param entryLevel the entries' level
+     * @return whether they are printed
+     */
+    public boolean isEnabled(Level entryLevel) {
+        return entryLevel.compareTo(level) >= 0;
     }
 
     /**
@@ -106,7 +187,7 @@ public class Shell {
      * @return debug state
      */
     public boolean isDebugOn(){
-        return debugOn;
+        return isEnabled(Level.DEBUG);
     }
 
     /**
@@ -114,6 +195,161 @@ public class Shell {
      * @param value true or false (activated or not)
      */
     public void setDebugState(boolean value) {
-        debugOn = value;
+        level = value ? Level.DEBUG : Level.FINE;
+    }
+
+    /**
+     * Changes the least important level printed
+     * @param value the new level
+     */
+    public void setLevel(Level value) {
+        level = value;
+    }
+
+    /**
+     * Changes what printing threads do when the buffer is full
+     * @param value the new policy
+     */
+    public void setOverflowPolicy(OverflowPolicy value) {
+        overflowPolicy = value;
+    }
+
+    /**
+     * Returns how many entries were dropped for finding the buffer full
+     * @return dropped entries since startup
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Waits until every entry queued so far is written
+     */
+    public void flush() {
+        long target = tail.get();
+        while (written < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+    }
+
+    private void print(Level entryLevel, String text, Object[] fields) {
+        if (entryLevel != null && !isEnabled(entryLevel)) {
+            return;
+        }
+
+        while (!offer(entryLevel, text, fields)) {
+            if (overflowPolicy == OverflowPolicy.DROP || closing) {
+                dropped.increment();
+                return;
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+
+        if (writerWaiting) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Claims the next slot with a compare-and-set on the tail, fills it and publishes it by advancing its sequence.
+     * A slot's sequence equals the position it expects next, and is one past it once filled
+     * @return false if the buffer is full
+     */
+    private boolean offer(Level entryLevel, String text, Object[] fields) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & (BUFFER_CAPACITY - 1);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    Entry entry = entries[index];
+                    entry.level = entryLevel;
+                    entry.text = text;
+                    entry.fields = fields;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Writer thread loop: formats every published entry into one batch, writes it, and waits for more
+     */
+    private void writeEntries() {
+        StringBuilder batch = new StringBuilder();
+        long reportedDrops = 0;
+        while (true) {
+            batch.setLength(0);
+            for (int count = 0; count < BUFFER_CAPACITY; count++) {
+                int index = (int) head & (BUFFER_CAPACITY - 1);
+                if (sequences.get(index) != head + 1) {
+                    break;
+                }
+
+                Entry entry = entries[index];
+                format(batch, entry.level, entry.text, entry.fields);
+                entry.text = null;
+                entry.fields = null;
+                sequences.set(index, head + BUFFER_CAPACITY);
+                head++;
+            }
+
+            long drops = dropped.sum();
+            if (drops > reportedDrops) {
+                format(batch, Level.ERROR, DROPPED_MSG, new Object[] {"count", drops - reportedDrops});
+                reportedDrops = drops;
+            }
+
+            if (!batch.isEmpty()) {
+                System.out.print(batch);
+                System.out.flush();
+                written = head;
+                continue;
+            }
+            written = head;
+
+            if (closing) {
+                return;
+            }
+            writerWaiting = true;
+            if (sequences.get((int) head & (BUFFER_CAPACITY - 1)) != head + 1) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            writerWaiting = false;
+        }
+    }
+
+    private void close() {
+        closing = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void format(StringBuilder batch, Level entryLevel, String text, Object[] fields) {
+        batch.append(DASH);
+        if (entryLevel != null) {
+            batch.append(entryLevel.label);
+        }
+        batch.append(text);
+
+        for (int i = 0; i < fields.length; i += 2) {
+            batch.append(EMPTY).append(fields[i]).append(FIELD_SEPARATOR);
+            if (i + 1 < fields.length) {
+                batch.append(fields[i + 1]);
+            }
+        }
+        batch.append(System.lineSeparator());
     }
 }
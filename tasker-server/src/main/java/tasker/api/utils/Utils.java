@@ -1,34 +1,85 @@
 package tasker.api.utils;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class Utils {
     public static final long TOKEN_EXPIRATION_TIME = 1200000;   // 20min in milliseconds
+    public static final long MAX_VERIFIED_TOKENS = 100000;
+
+    /** Tokens whose signature was already verified, keyed by a digest of the secret and the token */
+    private record VerifiedToken(String subject, long expiration) {}
+
+    private static final Map<String, JwtParser> PARSERS = new ConcurrentHashMap<>();
+    private static final Cache<String, VerifiedToken> VERIFIED_TOKENS = Caffeine.newBuilder()
+            .maximumSize(MAX_VERIFIED_TOKENS)
+            .expireAfter(new Expiry<String, VerifiedToken>() {
+                @Override
+                public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                    long millisLeft = Math.max(0, value.expiration() - System.currentTimeMillis());
+                    return TimeUnit.MILLISECONDS.toNanos(millisLeft);
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+
+                @Override
+                public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
 
     public static boolean isStringNull (String string) {
         return string == null || string.isBlank();
     }
 
+    /**
+     * Validates a session token. The signature of each token is only verified once, after which the token is kept
+     * in a cache until it expires
+     * @param token the session token, with or without the 'Bearer ' prefix
+     * @param tokenSecret the secret used during the token creation
+     * @param subject the username the token must belong to
+     * @return token is valid for the given subject or not
+     */
     public static boolean validateAuthToken(String token, String tokenSecret, String subject) {
         String finalToken = token.replace("Bearer ", "");
 
         try {
-            Jws<Claims> claims = Jwts.parserBuilder()
-                    .setSigningKey(tokenSecret)
-                    .build()
-                    .parseClaimsJws(finalToken);
+            String key = digest(tokenSecret, finalToken);
+            VerifiedToken verified = VERIFIED_TOKENS.getIfPresent(key);
+
+            // Verify signature on the first sight of the token
+            if (verified == null) {
+                Claims claims = PARSERS.computeIfAbsent(tokenSecret, secret -> Jwts.parserBuilder().setSigningKey(secret).build())
+                        .parseClaimsJws(finalToken)
+                        .getBody();
+
+                verified = new VerifiedToken(claims.getSubject(), claims.getExpiration().getTime());
+                VERIFIED_TOKENS.put(key, verified);
+            }
 
             // Validate
-            Date expiration = claims.getBody().getExpiration();
-            boolean expired = expiration.before(new Date());
-            boolean differentSubject = !subject.equals(claims.getBody().getSubject());
+            boolean expired = verified.expiration() < System.currentTimeMillis();
+            boolean differentSubject = !subject.equals(verified.subject());
             if (expired || differentSubject) {
                 return false;
             }
@@ -51,4 +102,11 @@ public class Utils {
                 .signWith(SignatureAlgorithm.HS256, key)
                 .compact();
     }
+
+    private static String digest(String tokenSecret, String token) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(tokenSecret.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
 }
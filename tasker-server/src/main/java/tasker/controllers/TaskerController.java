@@ -1,25 +1,56 @@
 package tasker.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import tasker.api.exceptions.InvalidRequestDataException;
+import tasker.api.exceptions.ResyncRequiredException;
 import tasker.api.exceptions.TaskDoesNotExistException;
+import tasker.api.exceptions.TaskListChangedException;
+import tasker.api.models.TaskBatchResult;
+import tasker.api.models.TaskChanges;
 import tasker.api.models.TaskModel;
+import tasker.api.models.TaskMutation;
+import tasker.api.models.TaskPage;
+import tasker.ResponseEncodings;
+import tasker.api.models.VersionedTaskList;
 import tasker.api.responses.ApiResponse;
+import tasker.api.responses.TaskBatchResponse;
+import tasker.api.responses.TaskChangesResponse;
+import tasker.api.responses.TaskDeltaResponse;
 import tasker.api.responses.TaskListResponse;
+import tasker.api.responses.TaskPageResponse;
+import tasker.api.resources.Task;
+import tasker.api.services.TaskEventBroadcaster;
 import tasker.api.services.TaskerService;
 import tasker.api.requests.tasks.AddTaskRequest;
+import tasker.api.requests.tasks.BatchTaskRequest;
 import tasker.api.requests.tasks.UpdateTaskRequest;
-import tasker.api.resources.Task;
 import tasker.api.utils.Shell;
-import tasker.api.utils.Utils;
+import tasker.filters.AuthenticationFilter;
+import tasker.filters.ConcurrencyLimitFilter;
+import tasker.filters.ResponseCompressionFilter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
-@CrossOrigin
+@CrossOrigin(exposedHeaders = {HttpHeaders.ETAG, TaskerController.PREFERENCE_APPLIED_HEADER})
 @RestController
 @RequestMapping("/tasker")
 public class TaskerController {
@@ -30,26 +61,43 @@ public class TaskerController {
     public static final String REMOVE_SUCCESS_MSG = "Task was successfully removed";
     public static final String UPDATE_SUCCESS_MSG = "Task was successfully updated";
     public static final String GET_ALL_SUCCESS_MSG = "Tasks were successfully retrieved";
+    public static final String BATCH_SUCCESS_MSG = "Task batch was successfully processed";
+    public static final String INVALID_BATCH_MSG = "Invalid batch. It must have between 1 and " + TaskerService.MAX_BATCH_OPERATIONS + " operations";
     public static final String NO_ID_GIVEN_MSG = "No id was given for message removal";
     public static final String TASK_DOES_NOT_EXIST_MSG = "No task was found with the provided id";
     public static final String INVALID_DATA_IN_REQUEST_MSG = "Invalid data was sent. There may be empty values";
+    public static final String INVALID_PAGE_MSG = "Invalid page request. Check the limit and cursor values";
+    public static final String GET_CHANGES_SUCCESS_MSG = "Task changes were successfully retrieved";
+    public static final String RESYNC_REQUIRED_MSG = "Full resync required. Fetch the whole task list again";
+    public static final String PREFER_HEADER = "Prefer";
+    public static final String PREFERENCE_APPLIED_HEADER = "Preference-Applied";
+    public static final String RETURN_MINIMAL = "return=minimal";
+    public static final String LIST_CHANGED_MSG = "The task list changed since it was last fetched";
+    public static final String ANY_ETAG = "*";
+    public static final String WEAK_ETAG_PREFIX = "W/";
+    public static final String SMILE_ETAG_SUFFIX = "-smile";
+    public static final String CBOR_ETAG_SUFFIX = "-cbor";
+    public static final String NDJSON_ETAG_SUFFIX = "-ndjson";
+    public static final String STREAM_ETAG_SUFFIX = "-stream";
+    public static final List<String> REPRESENTATION_ETAG_SUFFIXES = List.of(SMILE_ETAG_SUFFIX, CBOR_ETAG_SUFFIX, NDJSON_ETAG_SUFFIX, STREAM_ETAG_SUFFIX);
+    public static final String MESSAGE_FIELD = "message";
+    public static final String TASKS_FIELD = "tasks";
 
     @Autowired
     private TaskerService taskerService;
-
-    @Value("${jwt.secret}")
-    private String tokenSecret;
+    @Autowired
+    private TaskEventBroadcaster taskEventBroadcaster;
+    @Autowired
+    private ObjectMapper objectMapper;
 
 
     @PostMapping("{username}/add")
-    public ResponseEntity<ApiResponse> add(@PathVariable String username, @RequestBody AddTaskRequest request, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<ApiResponse> add(@RequestAttribute(AuthenticationFilter.USERNAME_ATTRIBUTE) String username, @RequestBody AddTaskRequest request,
+                                           @RequestHeader(value = PREFER_HEADER, required = false) String prefer,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         try {
-            if (!Utils.validateAuthToken(token, tokenSecret, username)) {
-                return new ResponseEntity<>(new ApiResponse("User not authenticated for this operation"), HttpStatus.FORBIDDEN);
-            }
-
-            List<Task> tasks = taskerService.add(username, request.description(), request.priority());
-            return new ResponseEntity<>(new TaskListResponse(ADD_SUCCESS_MSG, tasks), HttpStatus.OK);
+            TaskMutation mutation = taskerService.add(username, request.description(), request.priority());
+            return mutationResponse(ADD_SUCCESS_MSG, username, mutation, prefer, accept);
         } catch (InvalidRequestDataException e) {
             String errorMessage = e.getMessage();
             Shell.getInstance().printError(errorMessage);
@@ -57,15 +105,18 @@ public class TaskerController {
         }
     }
 
+    /**
+     * Deletes a task. With an 'If-Match' header holding a task list ETag, the task is only deleted if the list did
+     * not change since, and 412 is sent otherwise
+     */
     @DeleteMapping("{username}/delete")
-    public ResponseEntity<ApiResponse> remove(@PathVariable String username, @RequestParam Long id, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<ApiResponse> remove(@RequestAttribute(AuthenticationFilter.USERNAME_ATTRIBUTE) String username, @RequestParam Long id,
+                                              @RequestHeader(value = PREFER_HEADER, required = false) String prefer,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         try {
-            if (!Utils.validateAuthToken(token, tokenSecret, username)) {
-                return new ResponseEntity<>(new ApiResponse("User not authenticated for this operation"), HttpStatus.FORBIDDEN);
-            }
-
-            List<Task> tasks = taskerService.delete(username, id);
-            return new ResponseEntity<>(new TaskListResponse(REMOVE_SUCCESS_MSG, tasks), HttpStatus.OK);
+            TaskMutation mutation = taskerService.delete(username, id, expectedVersion(username, ifMatch));
+            return mutationResponse(REMOVE_SUCCESS_MSG, username, mutation, prefer, accept);
         } catch (InvalidRequestDataException e) {
             String errorMessage = e.getMessage();
             Shell.getInstance().printError(errorMessage);
@@ -74,19 +125,26 @@ public class TaskerController {
             String errorMessage = e.getMessage();
             Shell.getInstance().printError(errorMessage);
             return new ResponseEntity<>(new ApiResponse(TASK_DOES_NOT_EXIST_MSG), HttpStatus.NOT_FOUND);
+        } catch (TaskListChangedException e) {
+            String errorMessage = e.getMessage();
+            Shell.getInstance().printError(errorMessage);
+            return new ResponseEntity<>(new ApiResponse(LIST_CHANGED_MSG), HttpStatus.PRECONDITION_FAILED);
         }
     }
 
+    /**
+     * Updates a task. With an 'If-Match' header holding a task list ETag, the task is only updated if the list did
+     * not change since, and 412 is sent otherwise
+     */
     @PutMapping("{username}/update")
-    public ResponseEntity<ApiResponse> update(@PathVariable String username, @RequestBody UpdateTaskRequest request, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<ApiResponse> update(@RequestAttribute(AuthenticationFilter.USERNAME_ATTRIBUTE) String username, @RequestBody UpdateTaskRequest request,
+                                              @RequestHeader(value = PREFER_HEADER, required = false) String prefer,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         try {
-            if (!Utils.validateAuthToken(token, tokenSecret, username)) {
-                return new ResponseEntity<>(new ApiResponse("User not authenticated for this operation"), HttpStatus.FORBIDDEN);
-            }
-
             TaskModel dataModel = new TaskModel(request.id(), request.description(), request.priority());
-            List<Task> tasks = taskerService.update(username, dataModel);
-            return new ResponseEntity<>(new TaskListResponse(UPDATE_SUCCESS_MSG, tasks), HttpStatus.OK);
+            TaskMutation mutation = taskerService.update(username, dataModel, expectedVersion(username, ifMatch));
+            return mutationResponse(UPDATE_SUCCESS_MSG, username, mutation, prefer, accept);
         } catch (TaskDoesNotExistException e) {
             String errorMessage = e.getMessage();
             Shell.getInstance().printError(errorMessage);
@@ -95,16 +153,339 @@ public class TaskerController {
             String errorMessage = e.getMessage();
             Shell.getInstance().printError(errorMessage);
             return new ResponseEntity<>(new ApiResponse(INVALID_DATA_IN_REQUEST_MSG), HttpStatus.BAD_REQUEST);
+        } catch (TaskListChangedException e) {
+            String errorMessage = e.getMessage();
+            Shell.getInstance().printError(errorMessage);
+            return new ResponseEntity<>(new ApiResponse(LIST_CHANGED_MSG), HttpStatus.PRECONDITION_FAILED);
+        }
+    }
+
+    /**
+     * Applies many task operations in a single transaction, answering with the outcome of each one
+     */
+    @PostMapping("{username}/batch")
+    public ResponseEntity<ApiResponse> batch(@RequestAttribute(AuthenticationFilter.USERNAME_ATTRIBUTE) String username, @RequestBody BatchTaskRequest request) {
+        try {
+            List<TaskBatchResult> results = taskerService.batch(username, request.operations());
+            return new ResponseEntity<>(new TaskBatchResponse(BATCH_SUCCESS_MSG, results), HttpStatus.OK);
+        } catch (InvalidRequestDataException e) {
+            String errorMessage = e.getMessage();
+            Shell.getInstance().printError(errorMessage);
+            return new ResponseEntity<>(new ApiResponse(INVALID_BATCH_MSG), HttpStatus.BAD_REQUEST);
         }
     }
 
+    /**
+     * Lists the user's tasks. The whole list is sent unless a 'limit' or 'cursor' is given, in which case only
+     * one page is sent along with the cursor for the next one
+     * <p>
+     * The whole list is sent with its version as ETag, suffixed by its encoding (see {@link #listContentType}). A
+     * request whose 'If-None-Match' holds the current ETag of that encoding is answered with 304 before the list is read
+     * </p>
+     */
     @GetMapping("{username}/tasks")
-    public ResponseEntity<ApiResponse> tasks(@PathVariable String username, @RequestHeader("Authorization") String token) {
-        if (!Utils.validateAuthToken(token, tokenSecret, username)) {
-            return new ResponseEntity<>(new ApiResponse("User not authenticated for this operation"), HttpStatus.FORBIDDEN);
+    public ResponseEntity<ApiResponse> tasks(@RequestAttribute(AuthenticationFilter.USERNAME_ATTRIBUTE) String username, @RequestParam(required = false) Integer limit,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        try {
+            if (limit == null && cursor == null) {
+                MediaType contentType = listContentType(accept);
+                String currentTag = eTag(taskerService.getListVersion(username), contentType);
+                if (matchesAny(ifNoneMatch, currentTag)) {
+                    return new ResponseEntity<>(listHeaders(currentTag), HttpStatus.NOT_MODIFIED);
+                }
+
+                VersionedTaskList list = taskerService.getTaskList(username);
+                return new ResponseEntity<>(new TaskListResponse(GET_ALL_SUCCESS_MSG, list.tasks()), listHeaders(list.version(), contentType), HttpStatus.OK);
+            }
+
+            TaskPage page = taskerService.getTasksPage(username, cursor, limit);
+            return new ResponseEntity<>(new TaskPageResponse(GET_ALL_SUCCESS_MSG, page.tasks(), page.nextCursor()), HttpStatus.OK);
+        } catch (InvalidRequestDataException e) {
+            String errorMessage = e.getMessage();
+            Shell.getInstance().printError(errorMessage);
+            return new ResponseEntity<>(new ApiResponse(INVALID_PAGE_MSG), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Streams the user's whole task list as NDJSON, one task per line
+     * @see #streamedTaskList
+     */
+    @GetMapping(value = "{username}/tasks", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> tasksAsLines(@RequestAttribute(AuthenticationFilter.USERNAME_ATTRIBUTE) String username,
+                                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return streamedTaskList(username, ifNoneMatch, MediaType.APPLICATION_NDJSON, NDJSON_ETAG_SUFFIX, false);
+    }
+
+    /**
+     * Streams the user's whole task list as the same JSON document the list endpoint sends, when 'stream=true' is given
+     * @see #streamedTaskList
+     */
+    @GetMapping(value = "{username}/tasks", params = "stream=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamedTasks(@RequestAttribute(AuthenticationFilter.USERNAME_ATTRIBUTE) String username,
+                                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return streamedTaskList(username, ifNoneMatch, MediaType.APPLICATION_JSON, STREAM_ETAG_SUFFIX, true);
+    }
+
+    /**
+     * Lists the changes of the user's tasks after the given revision, with tombstones for deleted tasks. Clients
+     * start from the whole list's ETag, the 'ready' event of their event stream or a write's version, and continue
+     * from the revision of each answer. An expired revision is answered with 410, after which the whole list must be
+     * fetched again
+     */
+    @GetMapping("{username}/changes")
+    public ResponseEntity<ApiResponse> changes(@RequestAttribute(AuthenticationFilter.USERNAME_ATTRIBUTE) String username, @RequestParam long since) {
+        try {
+            TaskChanges changes = taskerService.getChanges(username, since);
+            return new ResponseEntity<>(new TaskChangesResponse(GET_CHANGES_SUCCESS_MSG, changes.revision(), changes.changes()), HttpStatus.OK);
+        } catch (ResyncRequiredException e) {
+            String errorMessage = e.getMessage();
+            Shell.getInstance().printError(errorMessage);
+            return new ResponseEntity<>(new ApiResponse(RESYNC_REQUIRED_MSG), HttpStatus.GONE);
+        }
+    }
+
+    /**
+     * Opens a stream of the user's task writes as Server-Sent Events: a 'ready' event with the current list version,
+     * then a 'task' event per committed write with the operation, the task and the new list version. Browsers'
+     * EventSource cannot send headers, so the session token may be given as the 'token' query parameter instead
+     */
+    @GetMapping(value = "{username}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public void events(@RequestAttribute(AuthenticationFilter.USERNAME_ATTRIBUTE) String username,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // Open streams are idle most of the time, so they do not keep a concurrency permit
+        request.setAttribute(ConcurrencyLimitFilter.RELEASE_ON_ASYNC_ATTRIBUTE, Boolean.TRUE);
+        taskEventBroadcaster.subscribe(username, taskerService.getListVersion(username), request, response);
+    }
+
+    /**
+     * Builds the response of a task write. Clients sending 'Prefer: return=minimal' only get the affected task and
+     * the new list version, while every other client gets the whole updated list
+     */
+    private ResponseEntity<ApiResponse> mutationResponse(String message, String username, TaskMutation mutation, String prefer, String accept) {
+        boolean minimal = prefer != null && Arrays.stream(prefer.split(","))
+                .anyMatch(preference -> preference.trim().equalsIgnoreCase(RETURN_MINIMAL));
+
+        MediaType contentType = listContentType(accept);
+        if (!minimal) {
+            VersionedTaskList list = taskerService.getTaskList(username);
+            return new ResponseEntity<>(new TaskListResponse(message, list.tasks()), listHeaders(list.version(), contentType), HttpStatus.OK);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(PREFERENCE_APPLIED_HEADER, RETURN_MINIMAL);
+        headers.setETag(eTag(mutation.getVersion(), contentType));
+        headers.setContentType(contentType);
+        TaskDeltaResponse response = new TaskDeltaResponse(message, mutation.getOperation(), mutation.getTask(), mutation.getVersion());
+        return new ResponseEntity<>(response, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Builds a task list response written while the tasks are read from storage, so neither the list nor its
+     * encoding is ever held whole. The body is written asynchronously, after the request thread is released, a chunk
+     * of tasks at a time: each chunk is sent to the client after its database connection is released, and the request
+     * keeps its concurrency permit until the whole list is sent
+     * <p>
+     * The ETag is the list version read before the tasks, so the tasks sent are at least that recent, with the
+     * stream's own suffix: streamed bytes, and their compression, are flushed a chunk at a time, and never match the
+     * other responses' exactly. If reading
+     * fails halfway, the connection is closed with the document left unterminated, so a cut list is never mistaken
+     * for a whole one
+     * </p>
+     * @param eTagSuffix names the stream's encoding in its ETag
+     * @param wrapped whether the tasks go in a list response document, or are sent one per line
+     */
+    private ResponseEntity<StreamingResponseBody> streamedTaskList(String username, String ifNoneMatch, MediaType contentType,
+                                                                   String eTagSuffix, boolean wrapped) {
+        String currentTag = eTag(taskerService.getListVersion(username), eTagSuffix);
+        HttpHeaders headers = listHeaders(currentTag);
+        if (matchesAny(ifNoneMatch, currentTag)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
         }
 
-        List<Task> tasks = taskerService.getAllTasks(username);
-        return new ResponseEntity<>(new TaskListResponse(GET_ALL_SUCCESS_MSG, tasks), HttpStatus.OK);
+        ObjectWriter taskWriter = objectMapper.writerFor(Task.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)
+                    .setRootValueSeparator(null);
+            try {
+                if (wrapped) {
+                    generator.writeStartObject();
+                    generator.writeStringField(MESSAGE_FIELD, GET_ALL_SUCCESS_MSG);
+                    generator.writeArrayFieldStart(TASKS_FIELD);
+                }
+
+                taskerService.forEachTaskChunk(username, tasks -> {
+                    try {
+                        for (Task task : tasks) {
+                            taskWriter.writeValue(generator, task);
+                            if (!wrapped) {
+                                generator.writeRaw('\n');
+                            }
+                        }
+                        generator.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+
+                if (wrapped) {
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                }
+                generator.close();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+
+        headers.setContentType(contentType);
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Headers of a whole task list: its ETag, and a cache policy making browsers revalidate their copy every time
+     */
+    private static HttpHeaders listHeaders(String eTag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(eTag);
+        headers.setCacheControl(CacheControl.noCache().cachePrivate());
+        return headers;
+    }
+
+    /**
+     * Headers of a whole task list sent in the given encoding, which is set as its content type so that the message
+     * converters use it rather than negotiate another one
+     */
+    private static HttpHeaders listHeaders(long version, MediaType contentType) {
+        HttpHeaders headers = listHeaders(eTag(version, contentType));
+        headers.setContentType(contentType);
+        return headers;
+    }
+
+    /**
+     * Picks the encoding of a list response from the 'Accept' header, before the list is read, so its ETag can name
+     * it: the first of JSON, Smile or CBOR the client accepts, by quality, and JSON when the client accepts any of
+     * them equally or sends no header
+     */
+    private static MediaType listContentType(String accept) {
+        if (accept == null) {
+            return MediaType.APPLICATION_JSON;
+        }
+
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : accepted) {
+            for (MediaType candidate : List.of(MediaType.APPLICATION_JSON, ResponseEncodings.SMILE, MediaType.APPLICATION_CBOR)) {
+                if (type.getQualityValue() > 0 && type.includes(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    /**
+     * The strong ETag of a list version in an encoding. Each encoding is a different representation, so Smile and
+     * CBOR responses get their own suffix, and compressed responses get the compression's suffix on top
+     */
+    private static String eTag(long version, MediaType contentType) {
+        if (ResponseEncodings.SMILE.isCompatibleWith(contentType)) {
+            return eTag(version, SMILE_ETAG_SUFFIX);
+        }
+        if (MediaType.APPLICATION_CBOR.isCompatibleWith(contentType)) {
+            return eTag(version, CBOR_ETAG_SUFFIX);
+        }
+        return eTag(version, "");
+    }
+
+    private static String eTag(long version, String suffix) {
+        return "\"" + version + suffix + "\"";
+    }
+
+    /**
+     * Checks an 'If-None-Match' header, comparing ETags weakly: the ETag of the response's representation matches,
+     * compressed or not, but not those of the version's other representations
+     */
+    private static boolean matchesAny(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .anyMatch(candidate -> candidate.equals(ANY_ETAG) || withoutEncoding(stripWeak(candidate)).equals(eTag));
+    }
+
+    /**
+     * Reads the list version a write expects from its 'If-Match' header, which may list several ETags. ETags are
+     * compared strongly there, so weak ones never match. Every representation's ETag names the same version
+     * @return the listed version the list is currently at, or else any listed version, null if any version is fine,
+     *         or -1 (never a version) if the header holds no strong list ETag
+     */
+    private Long expectedVersion(String username, String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+
+        List<Long> versions = new ArrayList<>();
+        for (String candidate : ifMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals(ANY_ETAG)) {
+                return null;
+            }
+
+            Long version = strongVersion(candidate);
+            if (version != null) {
+                versions.add(version);
+            }
+        }
+
+        if (versions.isEmpty()) {
+            return -1L;
+        }
+        long current = taskerService.getListVersion(username);
+        return versions.contains(current) ? current : versions.get(0);
+    }
+
+    /**
+     * @return the list version a strong ETag names, or null if it is weak or not a list ETag
+     */
+    private static Long strongVersion(String candidate) {
+        String eTag = withoutEncoding(candidate);
+        if (eTag.length() < 2 || !eTag.startsWith("\"") || !eTag.endsWith("\"")) {
+            return null;
+        }
+
+        String opaque = eTag.substring(1, eTag.length() - 1);
+        for (String suffix : REPRESENTATION_ETAG_SUFFIXES) {
+            if (opaque.endsWith(suffix)) {
+                opaque = opaque.substring(0, opaque.length() - suffix.length());
+                break;
+            }
+        }
+        try {
+            return Long.parseLong(opaque);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String stripWeak(String eTag) {
+        return eTag.startsWith(WEAK_ETAG_PREFIX) ? eTag.substring(WEAK_ETAG_PREFIX.length()) : eTag;
+    }
+
+    private static String withoutEncoding(String eTag) {
+        String suffix = ResponseCompressionFilter.GZIP_ETAG_SUFFIX + "\"";
+        return eTag.endsWith(suffix) ? eTag.substring(0, eTag.length() - suffix.length()) + "\"" : eTag;
     }
 }
@@ -18,6 +18,7 @@ import tasker.api.responses.TokenResponse;
 import tasker.api.services.UsersService;
 import tasker.api.utils.Shell;
 import tasker.api.utils.Utils;
+import tasker.filters.AuthenticationFilter;
 
 @CrossOrigin(origins = "*")
 @RestController
@@ -36,6 +37,7 @@ public class UsersController {
     public static final String VALIDATION_SUCCESS_MSG = "Validation was successfully done";
     public static final String INVALID_SESSION_TOKEN_MSG = "The session token is no longer valid";
     public static final String DELETE_SUCCESS_MSG = "User was successfully deleted";
+    public static final String SERVER_BUSY_MSG = "The server is too busy at the moment. Try again later";
 
     @Autowired
     private UsersService usersService;
@@ -64,6 +66,10 @@ public class UsersController {
             String errorMessage = e.getMessage();
             Shell.getInstance().printError(errorMessage);
             return new ResponseEntity<>(new ApiResponse(errorMessage), HttpStatus.NOT_FOUND);
+        } catch (ServiceOverloadedException e) {
+            String errorMessage = e.getMessage();
+            Shell.getInstance().printError(errorMessage);
+            return new ResponseEntity<>(new ApiResponse(SERVER_BUSY_MSG), HttpStatus.SERVICE_UNAVAILABLE);
         }
     }
 
@@ -88,6 +94,10 @@ public class UsersController {
             String errorMessage = e.getMessage();
             Shell.getInstance().printError(errorMessage);
             return new ResponseEntity<>(new ApiResponse(errorMessage), HttpStatus.BAD_REQUEST);
+        } catch (ServiceOverloadedException e) {
+            String errorMessage = e.getMessage();
+            Shell.getInstance().printError(errorMessage);
+            return new ResponseEntity<>(new ApiResponse(SERVER_BUSY_MSG), HttpStatus.SERVICE_UNAVAILABLE);
         }
     }
 
@@ -110,19 +120,19 @@ public class UsersController {
             String errorMessage = e.getMessage();
             Shell.getInstance().printError(errorMessage);
             return new ResponseEntity<>(new ApiResponse(errorMessage), HttpStatus.NOT_FOUND);
+        } catch (ServiceOverloadedException e) {
+            String errorMessage = e.getMessage();
+            Shell.getInstance().printError(errorMessage);
+            return new ResponseEntity<>(new ApiResponse(SERVER_BUSY_MSG), HttpStatus.SERVICE_UNAVAILABLE);
         }
     }
 
 
     @DeleteMapping("delete/{username}")
-    public ResponseEntity<ApiResponse> delete(@PathVariable String username, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<ApiResponse> delete(@RequestAttribute(AuthenticationFilter.USERNAME_ATTRIBUTE) String username) {
         try {
-            usersService.delete(username, token, tokenSecret);
+            usersService.delete(username);
             return new ResponseEntity<>(new ApiResponse(DELETE_SUCCESS_MSG), HttpStatus.OK);
-        } catch (UserNotAuthorizedException e) {
-            String errorMessage = e.getMessage();
-            Shell.getInstance().printError(errorMessage);
-            return new ResponseEntity<>(new ApiResponse(errorMessage), HttpStatus.FORBIDDEN);
         } catch (InvalidRequestDataException e) {
             String errorMessage = e.getMessage();
             Shell.getInstance().printError(errorMessage);
@@ -135,16 +145,12 @@ public class UsersController {
     }
 
     @GetMapping("details/{username}")
-    public ResponseEntity<ApiResponse> details(@PathVariable String username, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<ApiResponse> details(@RequestAttribute(AuthenticationFilter.USERNAME_ATTRIBUTE) String username) {
         try {
-            User user = usersService.get(username, token, tokenSecret);
+            User user = usersService.get(username);
 
             UserModel dataModel = new UserModel(user.getUsername(), "", user.getEmail(), user.getFirstName(), user.getLastName());
             return new ResponseEntity<>(new DataModelResponse(DETAILS_SUCCESS_MSG, dataModel), HttpStatus.OK);
-        } catch (UserNotAuthorizedException e) {
-            String errorMessage = e.getMessage();
-            Shell.getInstance().printError(errorMessage);
-            return new ResponseEntity<>(new ApiResponse(errorMessage), HttpStatus.FORBIDDEN);
         } catch (InvalidRequestDataException e) {
             String errorMessage = e.getMessage();
             Shell.getInstance().printError(errorMessage);
@@ -156,10 +162,12 @@ public class UsersController {
         }
     }
 
+    /**
+     * The session token is validated by the {@link AuthenticationFilter}, so reaching this handler means it is valid
+     */
     @GetMapping("validate/{username}")
-    public ResponseEntity<Void> validateToken(@RequestHeader("Authorization") String token, @PathVariable String username) {
-        boolean isValid = Utils.validateAuthToken(token, tokenSecret, username);
-        return new ResponseEntity<>(isValid ? HttpStatus.NO_CONTENT : HttpStatus.FORBIDDEN);
+    public ResponseEntity<Void> validateToken(@PathVariable String username) {
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
     @PostMapping("validate/{username}")
@@ -180,6 +188,10 @@ public class UsersController {
             String errorMessage = e.getMessage();
             Shell.getInstance().printError(errorMessage);
             return new ResponseEntity<>(new ApiResponse(errorMessage), HttpStatus.NOT_FOUND);
+        } catch (ServiceOverloadedException e) {
+            String errorMessage = e.getMessage();
+            Shell.getInstance().printError(errorMessage);
+            return new ResponseEntity<>(new ApiResponse(SERVER_BUSY_MSG), HttpStatus.SERVICE_UNAVAILABLE);
         }
     }
 }
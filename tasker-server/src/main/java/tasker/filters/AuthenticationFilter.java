@@ -0,0 +1,145 @@
+package tasker.filters;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import tasker.api.responses.ApiResponse;
+import tasker.api.utils.Shell;
+import tasker.api.utils.Utils;
+import tasker.monitoring.RequestPhases;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authenticates every request to a user's resources before it reaches the controllers
+ * <p>
+ * The session token is validated once against the username in the path. Rejected requests are answered right
+ * away, while accepted ones carry the authenticated username in the {@link #USERNAME_ATTRIBUTE} request attribute
+ * </p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AuthenticationFilter extends OncePerRequestFilter {
+
+    /** Constants */
+    public static final String USERNAME_ATTRIBUTE = "tasker.username";
+    public static final String NOT_AUTHENTICATED_MSG = "User not authenticated for this operation";
+    public static final String USERNAME_VARIABLE = "username";
+    public static final String TOKEN_PARAMETER = "token";
+    public static final String VALIDATION_METRIC = "tasker.auth.token.validation";
+
+    /**
+     * Routes that require a session token. A null method matches every method. Routes opened by browsers' EventSource,
+     * which cannot send headers, also take the token from the {@link #TOKEN_PARAMETER} query parameter
+     */
+    private record ProtectedRoute(HttpMethod method, PathPattern pattern, boolean tokenParameter) {
+        boolean matches(HttpMethod requestMethod, PathContainer path) {
+            return (method == null || method.equals(requestMethod)) && pattern.matches(path);
+        }
+    }
+
+    private static final List<ProtectedRoute> PROTECTED_ROUTES = List.of(
+            new ProtectedRoute(HttpMethod.GET, PathPatternParser.defaultInstance.parse("/tasker/{username}/events"), true),
+            route(null, "/tasker/{username}/**"),
+            route(HttpMethod.GET, "/users/details/{username}"),
+            route(HttpMethod.DELETE, "/users/delete/{username}"),
+            route(HttpMethod.GET, "/users/validate/{username}")
+    );
+
+    /** Variables */
+    private final Timer acceptedTokens;
+    private final Timer rejectedTokens;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${jwt.secret}")
+    private String tokenSecret;
+
+
+    public AuthenticationFilter(MeterRegistry meterRegistry) {
+        this.acceptedTokens = validationTimer(meterRegistry, "accepted");
+        this.rejectedTokens = validationTimer(meterRegistry, "rejected");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        HttpMethod method = HttpMethod.valueOf(request.getMethod());
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        ProtectedRoute route = PROTECTED_ROUTES.stream()
+                .filter(candidate -> candidate.matches(method, path))
+                .findFirst()
+                .orElse(null);
+
+        // Public route or CORS preflight
+        if (route == null || HttpMethod.OPTIONS.equals(method)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String username = route.pattern().matchAndExtract(path).getUriVariables().get(USERNAME_VARIABLE);
+        String token = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (Utils.isStringNull(token) && route.tokenParameter()) {
+            token = request.getParameter(TOKEN_PARAMETER);
+        }
+        if (Utils.isStringNull(token) || !validate(token, username)) {
+            Shell.getInstance().printError("Rejected session token", "user", username, "path", path.value());
+            reject(response);
+            return;
+        }
+
+        request.setAttribute(USERNAME_ATTRIBUTE, username);
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * Validates a session token, timing the signature check and claims parsing
+     */
+    private boolean validate(String token, String username) {
+        long start = System.nanoTime();
+        boolean valid = Utils.validateAuthToken(token, tokenSecret, username);
+        long elapsed = System.nanoTime() - start;
+        (valid ? acceptedTokens : rejectedTokens).record(elapsed, TimeUnit.NANOSECONDS);
+        RequestPhases.recordAuthentication(elapsed);
+        return valid;
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.FORBIDDEN.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        // The controllers accept every origin, but the CORS headers are only added once a request reaches them
+        response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+        objectMapper.writeValue(response.getOutputStream(), new ApiResponse(NOT_AUTHENTICATED_MSG));
+    }
+
+    private static Timer validationTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder(VALIDATION_METRIC)
+                .description("Session token validations")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static ProtectedRoute route(HttpMethod method, String pattern) {
+        return new ProtectedRoute(method, PathPatternParser.defaultInstance.parse(pattern), false);
+    }
+}
@@ -0,0 +1,203 @@
+package tasker.filters;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import tasker.api.responses.ApiResponse;
+import tasker.controllers.UsersController;
+import tasker.monitoring.RequestPhases;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sheds the load the storage cannot keep up with. Task and user requests run under a {@link ConcurrencyLimiter},
+ * one for reads and one for writes, and those over the limit are answered right away with 503 instead of waiting for
+ * a database connection behind everyone else
+ * <p>
+ * The limits adapt to the requests' latency, so they shrink as soon as the database slows down, and grow back as it
+ * recovers. Reads and writes are limited apart, so slow writes do not starve the task lists and the other way round.
+ * Requests hashing or checking a password are left out: their latency is the hash's, not the database's, and would
+ * shrink the write limit for nothing. The {@link tasker.api.services.PasswordHasher}'s bounded pool already sheds them
+ * </p>
+ * <p>
+ * A request's latency sample stops when its handler returns, as marked in its {@link RequestPhases}. Serializing and
+ * writing the response depend on the body's size, its encoding and how fast the client reads, not on the storage,
+ * so big lists sent to slow or compressing clients do not shrink the read limit
+ * </p>
+ * <p>
+ * Requests that continue asynchronously, like streamed lists, hold their permit until they complete, so clients
+ * reading slowly still count against the limit. Their duration depends on the client, so they give no latency sample.
+ * Requests marked with {@link #RELEASE_ON_ASYNC_ATTRIBUTE}, like event streams, are idle most of the time and give
+ * their permit back as soon as their handler returns
+ * </p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 30)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    /** Kinds of requests with their own limit */
+    public enum Kind {
+        READS, WRITES;
+
+        private final String property = "tasker.concurrency." + name().toLowerCase(Locale.ROOT);
+    }
+
+    /** Constants */
+    public static final String LIMITED_PATHS = "/tasker/";
+    public static final String USERS_PATH = "/users/";
+    public static final String RETRY_AFTER_SECONDS = "1";
+    public static final String LIMIT_METRIC = "tasker.concurrency.limit";
+    public static final String IN_FLIGHT_METRIC = "tasker.concurrency.in-flight";
+    public static final String SHED_METRIC = "tasker.concurrency.shed";
+    public static final String RELEASE_ON_ASYNC_ATTRIBUTE = ConcurrencyLimitFilter.class.getName() + ".releaseOnAsync";
+
+    /** Variables */
+    private final ConcurrencyLimiter readLimiter;
+    private final ConcurrencyLimiter writeLimiter;
+    private final Counter shedReads;
+    private final Counter shedWrites;
+    private final boolean enabled;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+
+    public ConcurrencyLimitFilter(Environment environment, MeterRegistry meterRegistry) {
+        this.enabled = environment.getRequiredProperty("tasker.concurrency.enabled", Boolean.class);
+        this.readLimiter = limiter(environment, Kind.READS);
+        this.writeLimiter = limiter(environment, Kind.WRITES);
+        this.shedReads = register(meterRegistry, Kind.READS, readLimiter);
+        this.shedWrites = register(meterRegistry, Kind.WRITES, writeLimiter);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!enabled || HttpMethod.OPTIONS.matches(request.getMethod()) || !(path.startsWith(LIMITED_PATHS) || path.startsWith(USERS_PATH))
+                || RateLimitFilter.hashesPassword(request.getMethod(), path)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        boolean read = HttpMethod.GET.matches(request.getMethod());
+        ConcurrencyLimiter limiter = read ? readLimiter : writeLimiter;
+        if (!limiter.tryAcquire()) {
+            (read ? shedReads : shedWrites).increment();
+            reject(response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean released = false;
+        try {
+            chain.doFilter(request, response);
+            if (!request.isAsyncStarted()) {
+                released = true;
+                long handled = RequestPhases.handledAt();
+                limiter.release((handled > start ? handled : System.nanoTime()) - start);
+            } else if (request.getAttribute(RELEASE_ON_ASYNC_ATTRIBUTE) == null) {
+                request.getAsyncContext().addListener(new AsyncRelease(limiter));
+                released = true;
+            }
+        } finally {
+            if (!released) {
+                limiter.releaseWithoutSample();
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+
+        // The controllers accept every origin, but the CORS headers are only added once a request reaches them
+        response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+        objectMapper.writeValue(response.getOutputStream(), new ApiResponse(UsersController.SERVER_BUSY_MSG));
+    }
+
+    private static ConcurrencyLimiter limiter(Environment environment, Kind kind) {
+        return new ConcurrencyLimiter(
+                environment.getRequiredProperty(kind.property + ".initial-limit", Integer.class),
+                environment.getRequiredProperty(kind.property + ".min-limit", Integer.class),
+                environment.getRequiredProperty(kind.property + ".max-limit", Integer.class),
+                environment.getRequiredProperty("tasker.concurrency.tolerance", Double.class),
+                environment.getRequiredProperty("tasker.concurrency.smoothing", Double.class),
+                environment.getRequiredProperty("tasker.concurrency.long-window", Integer.class));
+    }
+
+    private static Counter register(MeterRegistry meterRegistry, Kind kind, ConcurrencyLimiter limiter) {
+        String tag = kind.name().toLowerCase(Locale.ROOT);
+        Gauge.builder(LIMIT_METRIC, limiter, ConcurrencyLimiter::getLimit)
+                .description("Current concurrency limit")
+                .tag("kind", tag)
+                .register(meterRegistry);
+        Gauge.builder(IN_FLIGHT_METRIC, limiter, ConcurrencyLimiter::getInFlight)
+                .description("Requests holding a concurrency permit")
+                .tag("kind", tag)
+                .register(meterRegistry);
+        return Counter.builder(SHED_METRIC)
+                .description("Requests rejected for exceeding the concurrency limit")
+                .tag("kind", tag)
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * Gives an asynchronous request's permit back once, when the request completes, fails or times out
+     */
+    private static class AsyncRelease implements AsyncListener {
+        private final ConcurrencyLimiter limiter;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        AsyncRelease(ConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                limiter.releaseWithoutSample();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Dispatched requests started again keep the permit, and are listened to again
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
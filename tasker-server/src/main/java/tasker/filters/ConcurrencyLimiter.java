@@ -0,0 +1,124 @@
+package tasker.filters;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounds the number of requests in flight, adapting the bound to their measured latency (a gradient algorithm, in
+ * the style of TCP Vegas)
+ * <p>
+ * A long-term average of the latency stands for the latency without queueing. When the latest latency rises above it
+ * by more than the tolerance, requests are queueing somewhere, like on database connections, and the limit shrinks
+ * in proportion. While both agree, the limit grows by its square root, probing for more capacity. Changes are
+ * smoothed, and the limit only grows while at least half of it is in use
+ * </p>
+ * <p>
+ * Taking and returning permits is lock-free. Latency samples update the limit under a lock, which is skipped by
+ * samples arriving while another one holds it
+ * </p>
+ */
+public class ConcurrencyLimiter {
+
+    /** Constants */
+    public static final double MIN_GRADIENT = 0.5;
+    public static final double LONG_RTT_RECOVERY = 2.0;
+    public static final double LONG_RTT_DECAY = 0.95;
+
+    /** Variables */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Lock sampleLock = new ReentrantLock();
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final double longRttFactor;
+    private volatile int limit;
+    private double estimatedLimit;
+    private double longRtt;
+
+    /**
+     * @param initialLimit the limit before any latency is measured
+     * @param minLimit the lowest the limit shrinks to
+     * @param maxLimit the highest the limit grows to
+     * @param tolerance how many times the long-term latency a sample can take before the limit shrinks
+     * @param smoothing the weight of each new limit estimate, between 0 and 1
+     * @param longWindow the number of samples the long-term latency averages over
+     */
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing, int longWindow) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.longRttFactor = 2.0 / (longWindow + 1);
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Takes a permit, if fewer requests than the limit are in flight
+     * @return whether it was taken
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns a permit, updating the limit with the request's latency
+     * @param rttNanos how long the request held the permit
+     */
+    public void release(long rttNanos) {
+        if (rttNanos > 0 && sampleLock.tryLock()) {
+            try {
+                update(rttNanos, inFlight.get());
+            } finally {
+                sampleLock.unlock();
+            }
+        }
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Returns a permit without a latency sample, for requests whose duration says nothing about the load
+     */
+    public void releaseWithoutSample() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void update(long rtt, int currentInFlight) {
+        double shortRtt = rtt;
+        longRtt = longRtt == 0 ? shortRtt : longRtt + (shortRtt - longRtt) * longRttFactor;
+
+        // After a slow period the average lags behind, so let it catch up with the faster latencies
+        if (longRtt / shortRtt > LONG_RTT_RECOVERY) {
+            longRtt *= LONG_RTT_DECAY;
+        }
+
+        // Too few requests to tell whether more would queue
+        if (currentInFlight < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longRtt / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+}
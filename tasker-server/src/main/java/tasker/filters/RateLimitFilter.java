@@ -0,0 +1,257 @@
+package tasker.filters;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import tasker.api.responses.ApiResponse;
+import tasker.api.utils.Shell;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the request rate of each user and client before the controllers run, so a single looping client cannot
+ * take the connection pool from everyone else
+ * <p>
+ * Every {@link Group} of endpoints has its own token buckets, keyed by the authenticated username or the client IP,
+ * with 'tasker.rate-limits.[group].capacity' tokens refilled at 'tasker.rate-limits.[group].per-second'. A request
+ * takes one token from each bucket it falls in, and is answered with 429 and a 'Retry-After' header when one is
+ * empty. Every bucket is checked before any token is taken, so a rejected request spends none. Runs after the
+ * {@link AuthenticationFilter}, so only authenticated users get a user bucket
+ * </p>
+ * <p>
+ * A bucket is a single 'theoretical arrival time' (the generic cell rate algorithm): the instant the bucket would be
+ * full again. Taking a token moves it forward by one refill interval with a compare-and-set, so buckets never lock.
+ * Buckets are kept in a Caffeine cache per group, which is internally striped, and dropped once idle long enough to
+ * be full again or when there are too many of them
+ * </p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    /** Endpoint groups with their own limits */
+    public enum Group {
+        /** Requests hashing or checking a password, per client IP: logins, registrations, password checks and account updates */
+        LOGIN,
+        /** A user's task and account reads, per user */
+        READS,
+        /** A user's task and account writes, per user */
+        WRITES,
+        /** Every request, per client IP */
+        CLIENTS;
+
+        private final String property = "tasker.rate-limits." + name().toLowerCase(Locale.ROOT);
+    }
+
+    /** Constants */
+    public static final String TOO_MANY_REQUESTS_MSG = "Too many requests. Try again later";
+    public static final String REJECTED_METRIC = "tasker.rate-limits.rejected";
+    public static final String LOGIN_PATH = "/users/login";
+    public static final String REGISTER_PATH = "/users/register";
+    public static final String VALIDATE_PATH = "/users/validate/";
+    public static final String UPDATE_PATH = "/users/update/";
+    public static final String ACTUATOR_PATH = "/actuator/";
+    public static final Duration MIN_IDLE_EXPIRY = Duration.ofMinutes(1);
+
+    /** Variables */
+    private final Map<Group, Limit> limits = new EnumMap<>(Group.class);
+    private final boolean enabled;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+
+    public RateLimitFilter(Environment environment, MeterRegistry meterRegistry) {
+        this.enabled = environment.getRequiredProperty("tasker.rate-limits.enabled", Boolean.class);
+        long maxKeys = environment.getRequiredProperty("tasker.rate-limits.max-keys", Long.class);
+        for (Group group : Group.values()) {
+            int capacity = environment.getRequiredProperty(group.property + ".capacity", Integer.class);
+            double perSecond = environment.getRequiredProperty(group.property + ".per-second", Double.class);
+            if (capacity > 0 && perSecond > 0) {
+                limits.put(group, new Limit(group, capacity, perSecond, maxKeys, meterRegistry));
+            }
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!enabled || path.startsWith(ACTUATOR_PATH) || HttpMethod.OPTIONS.matches(request.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String clientIp = request.getRemoteAddr();
+        List<Bucket> buckets = new ArrayList<>(3);
+        addBucket(buckets, Group.CLIENTS, clientIp);
+        if (hashesPassword(request.getMethod(), path)) {
+            addBucket(buckets, Group.LOGIN, clientIp);
+        }
+
+        String username = (String) request.getAttribute(AuthenticationFilter.USERNAME_ATTRIBUTE);
+        if (username != null) {
+            addBucket(buckets, HttpMethod.GET.matches(request.getMethod()) ? Group.READS : Group.WRITES, username);
+        }
+
+        long retryAfter = takeAll(buckets, System.nanoTime());
+        if (retryAfter > 0) {
+            reject(response, retryAfter);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * Tells whether a request hashes or checks a password, and so costs far more than the others
+     * @param method the request's HTTP method
+     * @param path the request's path, without the context path
+     */
+    public static boolean hashesPassword(String method, String path) {
+        return (HttpMethod.POST.matches(method) && (path.equals(LOGIN_PATH) || path.equals(REGISTER_PATH) || path.startsWith(VALIDATE_PATH)))
+                || (HttpMethod.PUT.matches(method) && path.startsWith(UPDATE_PATH));
+    }
+
+    private void addBucket(List<Bucket> buckets, Group group, String key) {
+        Limit limit = limits.get(group);
+        if (limit != null) {
+            buckets.add(new Bucket(group, limit, key));
+        }
+    }
+
+    /**
+     * Takes a token from every bucket, only if none of them is empty. Tokens taken before losing a race for the last
+     * token of a later bucket are given back
+     * @return 0 if taken, or the nanoseconds until all of them can be
+     */
+    private static long takeAll(List<Bucket> buckets, long now) {
+        long retryAfter = 0;
+        for (Bucket bucket : buckets) {
+            long wait = bucket.limit.untilAvailable(bucket.key, now);
+            if (wait > 0) {
+                bucket.limit.rejected.increment();
+                Shell.getInstance().printDebug("Rate limited", "group", bucket.group, "key", bucket.key);
+                retryAfter = Math.max(retryAfter, wait);
+            }
+        }
+        if (retryAfter > 0) {
+            return retryAfter;
+        }
+
+        for (int i = 0; i < buckets.size(); i++) {
+            Bucket bucket = buckets.get(i);
+            long wait = bucket.limit.take(bucket.key, now);
+            if (wait > 0) {
+                bucket.limit.rejected.increment();
+                for (int j = 0; j < i; j++) {
+                    buckets.get(j).limit.giveBack(buckets.get(j).key);
+                }
+                return wait;
+            }
+        }
+        return 0;
+    }
+
+    private void reject(HttpServletResponse response, long retryAfterNanos) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (retryAfterNanos + 999_999_999) / 1_000_000_000)));
+
+        // The controllers accept every origin, but the CORS headers are only added once a request reaches them
+        response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+        objectMapper.writeValue(response.getOutputStream(), new ApiResponse(TOO_MANY_REQUESTS_MSG));
+    }
+
+
+    /**
+     * The buckets of a group and its limits
+     */
+    private static class Limit {
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final Cache<String, AtomicLong> buckets;
+        private final Counter rejected;
+
+        Limit(Group group, int capacity, double perSecond, long maxKeys, MeterRegistry meterRegistry) {
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+            this.burstNanos = intervalNanos * capacity;
+
+            // An idle bucket is full again after 'burstNanos', and can then be forgotten
+            Duration idleExpiry = Duration.ofNanos(burstNanos);
+            this.buckets = Caffeine.newBuilder()
+                    .expireAfterAccess(idleExpiry.compareTo(MIN_IDLE_EXPIRY) > 0 ? idleExpiry : MIN_IDLE_EXPIRY)
+                    .maximumSize(maxKeys)
+                    .build();
+            this.rejected = Counter.builder(REJECTED_METRIC)
+                    .description("Requests rejected for exceeding a rate limit")
+                    .tag("group", group.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+
+        /**
+         * @return 0 if a token can be taken, or the nanoseconds until one can be
+         */
+        long untilAvailable(String key, long now) {
+            AtomicLong bucket = buckets.getIfPresent(key);
+            if (bucket == null) {
+                return 0;
+            }
+            long next = Math.max(bucket.get(), now) + intervalNanos;
+            return Math.max(0, next - now - burstNanos);
+        }
+
+        long take(String key, long now) {
+            AtomicLong bucket = buckets.get(key, ignored -> new AtomicLong(Long.MIN_VALUE));
+            while (true) {
+                long arrival = bucket.get();
+                long next = Math.max(arrival, now) + intervalNanos;
+                if (next - now > burstNanos) {
+                    return next - now - burstNanos;
+                }
+                if (bucket.compareAndSet(arrival, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        /**
+         * Puts back a token taken from the bucket
+         */
+        void giveBack(String key) {
+            AtomicLong bucket = buckets.getIfPresent(key);
+            if (bucket != null) {
+                bucket.addAndGet(-intervalNanos);
+            }
+        }
+    }
+
+
+    /**
+     * A bucket a request falls in
+     */
+    private record Bucket(Group group, Limit limit, String key) {
+    }
+}
@@ -0,0 +1,300 @@
+package tasker.filters;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses the responses of clients sending 'Accept-Encoding: gzip', once their body reaches
+ * 'tasker.compression.min-response-size'
+ * <p>
+ * Bodies are held until they reach that size, so smaller ones are sent as they are, with their length. Larger ones
+ * of a 'tasker.compression.mime-types' type are gzipped as they are written, and get 'Vary: Accept-Encoding'. A
+ * compressed response is a different representation, so its strong ETag gets the {@link #GZIP_ETAG_SUFFIX}: task
+ * list ETags stay strong, which Tomcat's own compression does not allow
+ * </p>
+ * <p>
+ * Asynchronous bodies, like streamed task lists, are written through as soon as they flush, and the compressed
+ * stream is ended in their asynchronous dispatch. Event streams take the unwrapped response, and are never compressed
+ * </p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+public class ResponseCompressionFilter extends OncePerRequestFilter {
+
+    /** Constants */
+    public static final String GZIP = "gzip";
+    public static final String GZIP_ETAG_SUFFIX = "-gzip";
+    public static final String RESPONSE_ATTRIBUTE = ResponseCompressionFilter.class.getName() + ".response";
+
+    /** Variables */
+    private final boolean enabled;
+    private final int minResponseSize;
+    private final List<MediaType> mimeTypes;
+
+
+    public ResponseCompressionFilter(@Value("${tasker.compression.enabled}") boolean enabled,
+                                     @Value("${tasker.compression.min-response-size}") DataSize minResponseSize,
+                                     @Value("${tasker.compression.mime-types}") String[] mimeTypes) {
+        this.enabled = enabled;
+        this.minResponseSize = (int) minResponseSize.toBytes();
+        this.mimeTypes = Arrays.stream(mimeTypes).map(MediaType::parseMediaType).toList();
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        // The asynchronous dispatch of a body already wrapped, which ends its compressed stream once written
+        if (isAsyncDispatch(request)) {
+            chain.doFilter(request, response);
+            CompressingResponse compressing = (CompressingResponse) request.getAttribute(RESPONSE_ATTRIBUTE);
+            if (compressing != null && !request.isAsyncStarted()) {
+                try {
+                    compressing.finish();
+                } catch (IOException e) {
+                    // The client went away while the body was being streamed
+                }
+            }
+            return;
+        }
+
+        if (!enabled || !acceptsGzip(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        CompressingResponse compressing = new CompressingResponse(request, response);
+        chain.doFilter(request, compressing);
+        if (request.isAsyncStarted()) {
+            request.setAttribute(RESPONSE_ATTRIBUTE, compressing);
+        } else {
+            compressing.finish();
+        }
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        for (String header : Collections.list(request.getHeaders(HttpHeaders.ACCEPT_ENCODING))) {
+            for (String coding : header.split(",")) {
+                String[] parts = coding.trim().split(";");
+                if (parts[0].trim().equalsIgnoreCase(GZIP) && !(parts.length > 1 && parts[1].replace(" ", "").matches("q=0(\\.0*)?"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+
+        try {
+            MediaType type = MediaType.parseMediaType(contentType);
+            return mimeTypes.stream().anyMatch(type::equalsTypeAndSubtype);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Response holding its body until it is large enough to compress
+     */
+    private class CompressingResponse extends HttpServletResponseWrapper {
+        private final HttpServletRequest request;
+        private ByteArrayOutputStream held = new ByteArrayOutputStream(minResponseSize);
+        private OutputStream target;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+        private boolean compressing;
+        private boolean finished;
+
+        CompressingResponse(HttpServletRequest request, HttpServletResponse response) {
+            super(response);
+            this.request = request;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (outputStream == null) {
+                outputStream = new HoldingOutputStream();
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int length) {
+            if (!compressing) {
+                super.setContentLength(length);
+            }
+        }
+
+        @Override
+        public void setContentLengthLong(long length) {
+            if (!compressing) {
+                super.setContentLengthLong(length);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (request.isAsyncStarted()) {
+                release();
+                target.flush();
+            }
+        }
+
+        /**
+         * Sends what the body holds and ends the compressed stream. A body that never reached the threshold is sent
+         * as it is, with its length
+         */
+        void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            if (writer != null) {
+                writer.flush();
+            }
+            finished = true;
+
+            if (held != null) {
+                if (held.size() > 0 && !isCommitted()) {
+                    super.setContentLength(held.size());
+                }
+                if (held.size() > 0) {
+                    getResponse().getOutputStream().write(held.toByteArray());
+                }
+                held = null;
+            } else if (compressing) {
+                ((GZIPOutputStream) target).finish();
+            }
+        }
+
+        /**
+         * Stops holding the body: compresses it from here on if it can, and sends what it holds
+         */
+        private void release() throws IOException {
+            if (held == null) {
+                return;
+            }
+
+            OutputStream out = getResponse().getOutputStream();
+            if (!isCommitted() && getHeader(HttpHeaders.CONTENT_ENCODING) == null && isCompressible(getContentType())) {
+                super.setContentLengthLong(-1);
+                setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+                addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+                String eTag = getHeader(HttpHeaders.ETAG);
+                if (eTag != null && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+                    setHeader(HttpHeaders.ETAG, eTag.substring(0, eTag.length() - 1) + GZIP_ETAG_SUFFIX + "\"");
+                }
+
+                compressing = true;
+                out = new GZIPOutputStream(out, minResponseSize, true);
+            }
+
+            target = out;
+            target.write(held.toByteArray());
+            held = null;
+        }
+
+
+        private class HoldingOutputStream extends ServletOutputStream {
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (finished) {
+                    throw new IOException("The response body was already sent");
+                }
+                if (held != null && held.size() + len <= minResponseSize) {
+                    held.write(b, off, len);
+                    return;
+                }
+
+                release();
+                target.write(b, off, len);
+            }
+
+            /**
+             * Only asynchronous bodies are flushed as they go. Others are sent whole once the request is handled,
+             * so flushing them would only break up the compressed stream
+             */
+            @Override
+            public void flush() throws IOException {
+                if (request.isAsyncStarted() && !finished) {
+                    release();
+                    target.flush();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!request.isAsyncStarted()) {
+                    finish();
+                }
+            }
+
+            @Override
+            public boolean isReady() {
+                return held != null || target == null || getResponseStream().isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                getResponseStream().setWriteListener(writeListener);
+            }
+
+            private ServletOutputStream getResponseStream() {
+                try {
+                    return getResponse().getOutputStream();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+}
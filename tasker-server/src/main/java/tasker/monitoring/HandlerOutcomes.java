@@ -0,0 +1,167 @@
+package tasker.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import tasker.api.responses.ApiResponse;
+import tasker.controllers.TaskerController;
+import tasker.controllers.UsersController;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts the outcome of every controller response, per handler
+ * <p>
+ * Responses are counted once the handler's request is complete, so bodiless ones, like a 304 or the 204 of a token
+ * validation, and bodies written asynchronously, like streamed task lists, are counted too. An outcome is named after
+ * the controller constant holding the response's message, such as 'task_does_not_exist' for
+ * {@link TaskerController#TASK_DOES_NOT_EXIST_MSG}. Responses without a message, or with one built from an exception,
+ * are named after their status instead, so the number of outcomes stays bounded. Event streams are counted when
+ * opened, as they never return to the handler. Counters are created on a handler's first response with each outcome,
+ * and only looked up afterwards, so counting allocates nothing
+ * </p>
+ */
+@ControllerAdvice(assignableTypes = {TaskerController.class, UsersController.class})
+public class HandlerOutcomes implements ResponseBodyAdvice<Object>, AsyncHandlerInterceptor, WebMvcConfigurer {
+
+    /** Constants */
+    public static final String OUTCOMES_METRIC = "tasker.handler.outcomes";
+    public static final String MESSAGE_SUFFIX = "_MSG";
+    public static final String OTHER_OUTCOME = "other";
+    public static final String OUTCOME_ATTRIBUTE = "tasker.handler.outcome";
+
+    /** Outcome names of the response statuses, by code */
+    private static final String[] STATUS_OUTCOMES = new String[600];
+
+    static {
+        for (HttpStatus status : HttpStatus.values()) {
+            STATUS_OUTCOMES[status.value()] = status.name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** Variables */
+    private final Map<Method, Map<String, Counter>> counters = new ConcurrentHashMap<>();
+    private final Map<String, String> outcomesByMessage = new HashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public HandlerOutcomes(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        addOutcomes(TaskerController.class);
+        addOutcomes(UsersController.class);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this);
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (body instanceof ApiResponse apiResponse && request instanceof ServletServerHttpRequest servletRequest) {
+            String outcome = outcomesByMessage.get(apiResponse.getMessage());
+            if (outcome != null) {
+                servletRequest.getServletRequest().setAttribute(OUTCOME_ATTRIBUTE, outcome);
+            }
+        }
+        return body;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (handler instanceof HandlerMethod handlerMethod && isCounted(handlerMethod)) {
+            count(handlerMethod, request, ex == null ? response.getStatus() : HttpStatus.INTERNAL_SERVER_ERROR.value());
+        }
+    }
+
+    /**
+     * Counts the handlers that start their own asynchronous response, as they are never dispatched again. The ones
+     * returning an asynchronous body are counted on the dispatch that completes it
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod handlerMethod && handlerMethod.isVoid() && isCounted(handlerMethod)) {
+            count(handlerMethod, request, response.getStatus());
+        }
+    }
+
+    private void count(HandlerMethod handlerMethod, HttpServletRequest request, int status) {
+        String outcome = (String) request.getAttribute(OUTCOME_ATTRIBUTE);
+        counter(handlerMethod.getMethod(), outcome != null ? outcome : statusOutcome(status)).increment();
+    }
+
+    private static boolean isCounted(HandlerMethod handlerMethod) {
+        Class<?> controller = handlerMethod.getBeanType();
+        return controller == TaskerController.class || controller == UsersController.class;
+    }
+
+    private Counter counter(Method handler, String outcome) {
+        Map<String, Counter> handlerCounters = counters.get(handler);
+        if (handlerCounters == null) {
+            handlerCounters = counters.computeIfAbsent(handler, key -> new ConcurrentHashMap<>());
+        }
+
+        Counter counter = handlerCounters.get(outcome);
+        if (counter == null) {
+            counter = handlerCounters.computeIfAbsent(outcome, key -> Counter.builder(OUTCOMES_METRIC)
+                    .description("Controller responses by handler and outcome")
+                    .tag("handler", handler.getDeclaringClass().getSimpleName() + "." + handler.getName())
+                    .tag("outcome", key)
+                    .register(meterRegistry));
+        }
+        return counter;
+    }
+
+    /**
+     * Names every message constant of a controller after its field
+     */
+    private void addOutcomes(Class<?> controller) {
+        for (Field field : controller.getFields()) {
+            int modifiers = field.getModifiers();
+            if (!Modifier.isStatic(modifiers) || !Modifier.isFinal(modifiers) || field.getType() != String.class) {
+                continue;
+            }
+
+            try {
+                String name = field.getName();
+                if (name.endsWith(MESSAGE_SUFFIX)) {
+                    name = name.substring(0, name.length() - MESSAGE_SUFFIX.length());
+                }
+                outcomesByMessage.putIfAbsent((String) field.get(null), name.toLowerCase(Locale.ROOT));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static String statusOutcome(int status) {
+        String outcome = status >= 0 && status < STATUS_OUTCOMES.length ? STATUS_OUTCOMES[status] : null;
+        return outcome == null ? OTHER_OUTCOME : outcome;
+    }
+}
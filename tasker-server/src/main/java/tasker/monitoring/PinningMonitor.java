@@ -0,0 +1,60 @@
+package tasker.monitoring;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+import tasker.api.utils.Shell;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads that stay pinned to their carrier thread for too long while in virtual thread mode
+ * <p>
+ * A pinned virtual thread blocks its carrier, usually because it blocked inside a 'synchronized' block or a native
+ * call. The JFR pinning events are streamed in-process and printed with the frames that caused them
+ * </p>
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class PinningMonitor {
+
+    /** Constants */
+    public static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    public static final int PRINTED_FRAMES = 8;
+
+    /** Variables */
+    private final RecordingStream stream = new RecordingStream();
+
+    @Value("${tasker.virtual-threads.pinning-threshold}")
+    private Duration threshold;
+
+    @PostConstruct
+    public void start() {
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::report);
+        stream.startAsync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        stream.close();
+    }
+
+    private void report(RecordedEvent event) {
+        List<RecordedFrame> frames = event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames();
+        String stack = frames.stream()
+                .limit(PRINTED_FRAMES)
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber())
+                .collect(Collectors.joining(" <- "));
+
+        Shell.getInstance().printError(String.format("Virtual thread pinned for %d ms: %s", event.getDuration().toMillis(), stack));
+    }
+}
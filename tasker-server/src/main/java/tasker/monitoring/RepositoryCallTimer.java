@@ -0,0 +1,27 @@
+package tasker.monitoring;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds the duration of every Spring Data repository call to the current {@link RequestPhases}. The 'memory'
+ * profile's repositories are plain beans, so their calls count as handler time
+ */
+@Component
+public class RepositoryCallTimer implements BeanPostProcessor {
+
+    private static final RepositoryMethodInvocationListener LISTENER =
+            invocation -> RequestPhases.recordRepositoryCall(invocation.getDuration(TimeUnit.NANOSECONDS));
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(LISTENER));
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,33 @@
+package tasker.monitoring;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import tasker.api.responses.TaskListResponse;
+import tasker.api.responses.TaskPageResponse;
+
+/**
+ * Marks the end of the handler phase in the current {@link RequestPhases}, right before the response body is
+ * serialized. Whole task lists also give the user's task count
+ */
+@ControllerAdvice
+public class RequestPhaseMarker implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        boolean wholeList = body instanceof TaskListResponse && !(body instanceof TaskPageResponse);
+        RequestPhases.recordHandled(wholeList ? ((TaskListResponse) body).getTasks().size() : -1);
+        return body;
+    }
+}
@@ -0,0 +1,130 @@
+package tasker.monitoring;
+
+/**
+ * Where the time of the current request went: session token validation, the handler, the repository calls it made,
+ * serializing its response and writing it out
+ * <p>
+ * Each request thread holds its own instance, started by the {@link SlowRequestLog}. Recording only reads the clock
+ * and adds to fields, and does nothing on threads not handling a request
+ * </p>
+ */
+public final class RequestPhases {
+
+    private static final ThreadLocal<RequestPhases> CURRENT = new ThreadLocal<>();
+
+    /** Variables */
+    private final long start = System.nanoTime();
+    private long authenticated;
+    private long authNanos;
+    private long handled;
+    private long repositoryNanos;
+    private int repositoryCalls;
+    private long writeNanos;
+    private int taskCount = -1;
+
+    private RequestPhases() {
+    }
+
+    /**
+     * Records a session token validation of the current request
+     * @param nanos the validation's duration
+     */
+    public static void recordAuthentication(long nanos) {
+        RequestPhases phases = CURRENT.get();
+        if (phases != null) {
+            phases.authNanos += nanos;
+            phases.authenticated = System.nanoTime();
+        }
+    }
+
+    /**
+     * Records a repository call of the current request
+     * @param nanos the call's duration
+     */
+    public static void recordRepositoryCall(long nanos) {
+        RequestPhases phases = CURRENT.get();
+        if (phases != null) {
+            phases.repositoryNanos += nanos;
+            phases.repositoryCalls++;
+        }
+    }
+
+    /**
+     * Records that the current request's handler returned, and its response is about to be serialized
+     * @param tasks the number of the user's tasks, if the response holds all of them, or -1
+     */
+    public static void recordHandled(int tasks) {
+        RequestPhases phases = CURRENT.get();
+        if (phases != null) {
+            phases.handled = System.nanoTime();
+            if (tasks >= 0) {
+                phases.taskCount = tasks;
+            }
+        }
+    }
+
+    /**
+     * When the current request's handler returned, before its response body was serialized
+     * @return the handler's return time, from {@link System#nanoTime()}, or 0 if it has not returned a body yet or
+     * the thread is not handling a request
+     */
+    public static long handledAt() {
+        RequestPhases phases = CURRENT.get();
+        return phases != null ? phases.handled : 0;
+    }
+
+    static RequestPhases begin() {
+        RequestPhases phases = new RequestPhases();
+        CURRENT.set(phases);
+        return phases;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    void recordWrite(long nanos) {
+        writeNanos += nanos;
+    }
+
+    long getStart() {
+        return start;
+    }
+
+    long getAuthNanos() {
+        return authNanos;
+    }
+
+    /**
+     * The handler's time, from the end of authentication (or the request's start) until it returned, without its
+     * repository calls. Includes reading the request body
+     */
+    long getServiceNanos(long end) {
+        long from = authenticated != 0 ? authenticated : start;
+        long until = handled != 0 ? handled : end;
+        return Math.max(0, until - from - repositoryNanos);
+    }
+
+    long getRepositoryNanos() {
+        return repositoryNanos;
+    }
+
+    int getRepositoryCalls() {
+        return repositoryCalls;
+    }
+
+    /**
+     * The time spent encoding the response body, without the time its output stream spent writing
+     */
+    long getSerializationNanos(long end) {
+        return handled != 0 ? Math.max(0, end - handled - writeNanos) : 0;
+    }
+
+    long getWriteNanos() {
+        return writeNanos;
+    }
+
+    int getTaskCount() {
+        return taskCount;
+    }
+}
@@ -0,0 +1,30 @@
+package tasker.monitoring;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tasker.api.utils.Shell;
+
+/**
+ * Applies the 'tasker.shell.*' settings to the {@link Shell}, which exists before the application starts, and
+ * publishes the number of entries it dropped
+ */
+@Component
+public class ShellSettings {
+
+    /** Constants */
+    public static final String DROPPED_METRIC = "tasker.shell.dropped";
+
+    public ShellSettings(@Value("${tasker.shell.level}") Shell.Level level,
+                         @Value("${tasker.shell.overflow-policy}") Shell.OverflowPolicy overflowPolicy,
+                         MeterRegistry meterRegistry) {
+        Shell shell = Shell.getInstance();
+        shell.setLevel(level);
+        shell.setOverflowPolicy(overflowPolicy);
+
+        FunctionCounter.builder(DROPPED_METRIC, shell, Shell::getDroppedCount)
+                .description("Shell entries dropped for finding its buffer full")
+                .register(meterRegistry);
+    }
+}
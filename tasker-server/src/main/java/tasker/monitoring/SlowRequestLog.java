@@ -0,0 +1,178 @@
+package tasker.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import tasker.api.services.TaskListCache;
+import tasker.api.utils.Shell;
+import tasker.filters.AuthenticationFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Times the phases of every request, and prints the breakdown of those slower than 'tasker.slow-requests.threshold'
+ * <p>
+ * The phases are token validation, the handler, its repository calls, serializing the response and writing it to
+ * the client, where writing is the time spent inside the response's output stream. Whatever is left, like the
+ * filters and dispatching, is printed as 'other'. Timing every request costs a few clock reads and two small
+ * objects, so it stays on. Slow requests of a user also print the user's task count when it is already known, from
+ * the handler or the list cache. The log never queries storage, -1 is printed otherwise
+ * </p>
+ * <p>
+ * Asynchronous requests, like event streams and streamed lists, are not timed past their handler, so they are not
+ * printed
+ * </p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SlowRequestLog extends OncePerRequestFilter {
+
+    /** Constants */
+    public static final String SLOW_REQUEST_MSG = "Slow request";
+    public static final String SLOW_METRIC = "tasker.requests.slow";
+
+    /** Variables */
+    private final long thresholdNanos;
+    private final Counter slowRequests;
+
+    @Autowired
+    private TaskListCache taskListCache;
+
+
+    public SlowRequestLog(@Value("${tasker.slow-requests.threshold}") Duration threshold, MeterRegistry meterRegistry) {
+        this.thresholdNanos = threshold.toNanos();
+        this.slowRequests = Counter.builder(SLOW_METRIC)
+                .description("Requests slower than the slow request threshold")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        RequestPhases phases = RequestPhases.begin();
+        try {
+            chain.doFilter(request, new TimedResponse(response, phases));
+
+            long end = System.nanoTime();
+            if (end - phases.getStart() >= thresholdNanos && !request.isAsyncStarted()) {
+                report(request, response, phases, end);
+            }
+        } finally {
+            RequestPhases.end();
+        }
+    }
+
+    private void report(HttpServletRequest request, HttpServletResponse response, RequestPhases phases, long end) {
+        slowRequests.increment();
+
+        String username = (String) request.getAttribute(AuthenticationFilter.USERNAME_ATTRIBUTE);
+        long tasks = phases.getTaskCount();
+        if (tasks < 0 && username != null) {
+            tasks = taskListCache.cachedSize(username);
+        }
+
+        long total = end - phases.getStart();
+        long other = total - phases.getAuthNanos() - phases.getServiceNanos(end) - phases.getRepositoryNanos()
+                - phases.getSerializationNanos(end) - phases.getWriteNanos();
+        Shell.getInstance().printError(SLOW_REQUEST_MSG,
+                "method", request.getMethod(),
+                "path", request.getRequestURI(),
+                "status", response.getStatus(),
+                "user", username,
+                "tasks", tasks,
+                "total_ms", millis(total),
+                "auth_ms", millis(phases.getAuthNanos()),
+                "service_ms", millis(phases.getServiceNanos(end)),
+                "repository_ms", millis(phases.getRepositoryNanos()),
+                "repository_calls", phases.getRepositoryCalls(),
+                "serialization_ms", millis(phases.getSerializationNanos(end)),
+                "write_ms", millis(phases.getWriteNanos()),
+                "other_ms", millis(Math.max(0, other)));
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+
+
+    /**
+     * Response whose output stream records the time spent writing
+     */
+    private static class TimedResponse extends HttpServletResponseWrapper {
+        private final RequestPhases phases;
+        private TimedOutputStream outputStream;
+
+        TimedResponse(HttpServletResponse response, RequestPhases phases) {
+            super(response);
+            this.phases = phases;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new TimedOutputStream(super.getOutputStream(), phases);
+            }
+            return outputStream;
+        }
+    }
+
+    private static class TimedOutputStream extends ServletOutputStream {
+        private final ServletOutputStream delegate;
+        private final RequestPhases phases;
+
+        TimedOutputStream(ServletOutputStream delegate, RequestPhases phases) {
+            this.delegate = delegate;
+            this.phases = phases;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            long start = System.nanoTime();
+            delegate.write(b);
+            phases.recordWrite(System.nanoTime() - start);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            delegate.write(b, off, len);
+            phases.recordWrite(System.nanoTime() - start);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            long start = System.nanoTime();
+            delegate.flush();
+            phases.recordWrite(System.nanoTime() - start);
+        }
+
+        @Override
+        public void close() throws IOException {
+            long start = System.nanoTime();
+            delegate.close();
+            phases.recordWrite(System.nanoTime() - start);
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
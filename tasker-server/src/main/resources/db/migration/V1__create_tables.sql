@@ -0,0 +1,17 @@
+-- Schema previously generated by Hibernate. Existing databases are baselined at this version
+CREATE TABLE IF NOT EXISTS user (
+    username VARCHAR(255) NOT NULL,
+    email VARCHAR(255),
+    first_name VARCHAR(255),
+    last_name VARCHAR(255),
+    password VARCHAR(255),
+    PRIMARY KEY (username)
+);
+
+CREATE TABLE IF NOT EXISTS task (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    description VARCHAR(255),
+    priority INT,
+    username VARCHAR(255),
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,3 @@
+-- Matches the task listing order (priority desc, description asc, id asc) so user listings, keyset pages and
+-- deletes by username are index range scans without a filesort
+CREATE INDEX idx_task_username_order ON task (username, priority DESC, description, id);
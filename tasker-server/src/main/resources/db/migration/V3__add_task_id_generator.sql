@@ -0,0 +1,9 @@
+-- Task ids are handed out in blocks from this table (pooled-lo). Hibernate stores the last id it reserved, so the
+-- counter starts at the highest existing id
+CREATE TABLE id_generator (
+    sequence_name VARCHAR(255) NOT NULL,
+    next_val BIGINT,
+    PRIMARY KEY (sequence_name)
+);
+
+INSERT INTO id_generator (sequence_name, next_val) SELECT 'task', COALESCE(MAX(id), 0) FROM task;
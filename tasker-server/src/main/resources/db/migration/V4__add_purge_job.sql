@@ -0,0 +1,7 @@
+-- Deleted accounts whose tasks are still being removed in the background
+CREATE TABLE purge_job (
+    username VARCHAR(255) NOT NULL,
+    deleted_tasks BIGINT NOT NULL,
+    requested_at BIGINT NOT NULL,
+    PRIMARY KEY (username)
+);
@@ -0,0 +1,10 @@
+-- Lease of the only server allowed to use this database. Task list versions, change logs and cached lists are kept
+-- in the server's memory, so a second server would never see the first one's writes
+CREATE TABLE server_lease (
+    id INT NOT NULL,
+    owner VARCHAR(64) NOT NULL,
+    expires_at BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO server_lease (id, owner, expires_at) VALUES (1, '', 0);
@@ -0,0 +1,144 @@
+package tasker.api.repositories;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import tasker.api.resources.Task;
+import tasker.api.services.TaskerService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the task indexes: the queries listing and paging a user's tasks must read them in the listing index's order,
+ * without sorting them, deleting them must read the same index, and a task lookup must read the primary key. Runs
+ * the SQL Hibernate generates for each query through EXPLAIN on the embedded database. Paged queries take an offset
+ * and a row count as their last parameters
+ */
+@DataJpaTest(showSql = false, properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=tasker.api.repositories.TaskerRepositoryPlanTest$RecordingInspector")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("embedded")
+class TaskerRepositoryPlanTest {
+
+    /** Constants */
+    public static final String LISTING_INDEX = "idx_task_username_order";
+    public static final String PRIMARY_KEY = "primary_key";
+    public static final String INDEX_SORTED = "/* index sorted */";
+    public static final String USERNAME = "bob";
+
+    /** Variables */
+    @Autowired
+    private TaskerRepository taskerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+
+    @BeforeEach
+    void addTasks() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            tasks.add(new Task(null, "task " + i, i % 5, i % 2 == 0 ? USERNAME : "alice"));
+        }
+        taskerRepository.saveAll(tasks);
+        taskerRepository.findByUsername(USERNAME, TaskerService.TASK_ORDER); // Flushes the inserts
+        RecordingInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    void findByUsernameReadsListingIndexInOrder() {
+        taskerRepository.findByUsername(USERNAME, TaskerService.TASK_ORDER, Limit.of(20));
+
+        assertReadsListingIndexInOrder(lastStatement(), USERNAME, 0, 20);
+    }
+
+    @Test
+    void findWholeListByUsernameReadsListingIndexInOrder() {
+        taskerRepository.findByUsername(USERNAME, TaskerService.TASK_ORDER);
+
+        assertReadsListingIndexInOrder(lastStatement(), USERNAME);
+    }
+
+    @Test
+    void findByUsernameAfterReadsListingIndexInOrder() {
+        taskerRepository.findByUsernameAfter(USERNAME, 3, "task 40", 41L, Limit.of(20));
+
+        assertReadsListingIndexInOrder(lastStatement(), USERNAME, 3, 3, 3, "task 40", "task 40", 41L, 0, 20);
+    }
+
+    @Test
+    void findByIdAndUsernameReadsPrimaryKey() {
+        testEntityManager.clear(); // Otherwise the task is found in the session, without a query
+        taskerRepository.findByIdAndUsername(42L, USERNAME);
+
+        assertThat(explain(lastStatement(), 42L))
+                .as("plan of %s", lastStatement())
+                .contains(PRIMARY_KEY)
+                .doesNotContain(LISTING_INDEX);
+    }
+
+    @Test
+    void deleteChunkByUsernameReadsListingIndex() throws NoSuchMethodException {
+        // A native query, so its SQL is the declared one
+        String sql = TaskerRepository.class.getMethod("deleteChunkByUsername", String.class, int.class)
+                .getAnnotation(Query.class).value()
+                .replace(":username", "?")
+                .replace(":limit", "?");
+
+        assertUsesListingIndex(sql, USERNAME, 10);
+    }
+
+    private void assertUsesListingIndex(String sql, Object... parameters) {
+        assertThat(explain(sql, parameters))
+                .as("plan of %s", sql)
+                .contains(LISTING_INDEX);
+    }
+
+    /**
+     * The embedded database marks the queries whose rows it reads already ordered, and so does not sort
+     */
+    private void assertReadsListingIndexInOrder(String sql, Object... parameters) {
+        assertThat(explain(sql, parameters))
+                .as("plan of %s", sql)
+                .contains(LISTING_INDEX)
+                .contains(INDEX_SORTED);
+    }
+
+    private String explain(String sql, Object... parameters) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parameters).toLowerCase(Locale.ROOT);
+    }
+
+    private static String lastStatement() {
+        List<String> statements = RecordingInspector.STATEMENTS;
+        assertThat(statements).isNotEmpty();
+        return statements.get(statements.size() - 1);
+    }
+
+
+    /**
+     * Records the SQL of every statement Hibernate prepares
+     */
+    public static class RecordingInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
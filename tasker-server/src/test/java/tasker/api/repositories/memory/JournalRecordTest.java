@@ -0,0 +1,76 @@
+package tasker.api.repositories.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the framing of journal records: every record decodes back to itself, and a torn or corrupt frame decodes to
+ * nothing without moving past it
+ */
+class JournalRecordTest {
+
+    /** Constants */
+    public static final List<JournalRecord> RECORDS = List.of(
+            new JournalRecord.TaskSaved(1, "bob", "Buy milk, été 🥛", 3),
+            new JournalRecord.TaskDeleted(Long.MAX_VALUE),
+            new JournalRecord.UserSaved("bob", "{bcrypt}hash", "bob@tasker", "Bob", null),
+            new JournalRecord.UserDeleted("bob"),
+            new JournalRecord.PurgeJobSaved("alice", 1_000_000L, 1700000000000L),
+            new JournalRecord.PurgeJobDeleted("alice"));
+
+
+    @Test
+    void recordsDecodeToThemselves() {
+        ByteBuffer buffer = frames(RECORDS);
+
+        List<JournalRecord> decoded = new ArrayList<>();
+        JournalRecord record;
+        while ((record = JournalRecord.decode(buffer)) != null) {
+            decoded.add(record);
+        }
+
+        assertThat(decoded).isEqualTo(RECORDS);
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    void tornRecordDecodesToNothing() {
+        ByteBuffer frame = RECORDS.get(0).encode();
+        for (int length : new int[] {0, JournalRecord.HEADER_BYTES - 1, JournalRecord.HEADER_BYTES, frame.remaining() - 1}) {
+            ByteBuffer torn = frame.duplicate().limit(length);
+
+            assertThat(JournalRecord.decode(torn)).as("first %d bytes", length).isNull();
+            assertThat(torn.position()).isZero();
+        }
+    }
+
+    @Test
+    void corruptRecordDecodesToNothing() {
+        ByteBuffer buffer = frames(RECORDS.subList(0, 2));
+        int corrupt = JournalRecord.HEADER_BYTES + 5;
+        buffer.put(corrupt, (byte) (buffer.get(corrupt) ^ 1));
+
+        assertThat(JournalRecord.decode(buffer)).isNull();
+        assertThat(buffer.position()).isZero();
+    }
+
+    @Test
+    void oversizedLengthDecodesToNothing() {
+        ByteBuffer buffer = RECORDS.get(1).encode();
+        buffer.putInt(0, JournalRecord.MAX_PAYLOAD_BYTES + 1);
+
+        assertThat(JournalRecord.decode(buffer)).isNull();
+    }
+
+    static ByteBuffer frames(List<JournalRecord> records) {
+        List<ByteBuffer> frames = records.stream().map(JournalRecord::encode).toList();
+        ByteBuffer buffer = ByteBuffer.allocate(frames.stream().mapToInt(ByteBuffer::remaining).sum());
+        frames.forEach(buffer::put);
+        return buffer.flip();
+    }
+}
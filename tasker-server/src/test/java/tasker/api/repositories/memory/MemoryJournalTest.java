@@ -0,0 +1,150 @@
+package tasker.api.repositories.memory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that the journal replays what it made durable, in order, across its segments, and that replay stops at a
+ * torn or corrupt tail instead of failing
+ */
+class MemoryJournalTest {
+
+    /** Variables */
+    @TempDir
+    private Path directory;
+
+    private MemoryJournal journal;
+
+
+    @AfterEach
+    void close() throws Exception {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void replaysAppendedRecords() throws Exception {
+        openJournal(1);
+        appendDurably(JournalRecordTest.RECORDS);
+        journal.close();
+        journal = null;
+
+        List<JournalRecord> replayed = new ArrayList<>();
+        assertThat(new MemoryJournal(directory.toString(), Duration.ZERO).replay(1, replayed::add))
+                .isEqualTo(JournalRecordTest.RECORDS.size() + 1);
+        assertThat(replayed).isEqualTo(JournalRecordTest.RECORDS);
+    }
+
+    @Test
+    void replayStopsAtTornTail() throws Exception {
+        openJournal(1);
+        appendDurably(JournalRecordTest.RECORDS.subList(0, 3));
+        journal.close();
+        journal = null;
+
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        assertThat(replay(1)).isEqualTo(JournalRecordTest.RECORDS.subList(0, 2));
+    }
+
+    @Test
+    void replayStopsAtCorruptRecord() throws Exception {
+        openJournal(1);
+        appendDurably(JournalRecordTest.RECORDS.subList(0, 3));
+        journal.close();
+        journal = null;
+
+        Path segment = onlySegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        int second = JournalRecordTest.RECORDS.get(0).encode().remaining();
+        bytes[second + JournalRecord.HEADER_BYTES + 2] ^= 1;
+        Files.write(segment, bytes);
+
+        assertThat(replay(1)).isEqualTo(JournalRecordTest.RECORDS.subList(0, 1));
+    }
+
+    @Test
+    void rotationStartsNewSegment() throws Exception {
+        openJournal(1);
+        appendDurably(JournalRecordTest.RECORDS.subList(0, 2));
+        assertThat(journal.rotate()).isEqualTo(3);
+        appendDurably(JournalRecordTest.RECORDS.subList(2, 4));
+
+        assertThat(segments()).hasSize(2);
+        assertThat(replay(1)).isEqualTo(JournalRecordTest.RECORDS.subList(0, 4));
+
+        journal.deleteSegmentsBefore(3);
+        assertThat(segments()).hasSize(1);
+        assertThat(replay(3)).isEqualTo(JournalRecordTest.RECORDS.subList(2, 4));
+    }
+
+    @Test
+    void replayRejectsMissingSegment() throws Exception {
+        openJournal(1);
+        appendDurably(JournalRecordTest.RECORDS.subList(0, 2));
+        journal.rotate();
+        appendDurably(JournalRecordTest.RECORDS.subList(2, 3));
+        Files.delete(segments().get(0));
+
+        assertThatThrownBy(() -> replay(1))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("missing");
+    }
+
+    @Test
+    void disabledJournalAppendsNothing() {
+        MemoryJournal disabled = new MemoryJournal("", Duration.ZERO);
+
+        assertThat(disabled.isEnabled()).isFalse();
+        assertThat(disabled.append(JournalRecordTest.RECORDS.get(0))).isZero();
+    }
+
+    private void openJournal(long sequence) throws IOException {
+        journal = new MemoryJournal(directory.toString(), Duration.ZERO);
+        journal.open(sequence);
+    }
+
+    private void appendDurably(List<JournalRecord> records) {
+        long sequence = 0;
+        for (JournalRecord record : records) {
+            sequence = journal.append(record);
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    private List<JournalRecord> replay(long from) throws IOException {
+        List<JournalRecord> replayed = new ArrayList<>();
+        new MemoryJournal(directory.toString(), Duration.ZERO).replay(from, replayed::add);
+        return replayed;
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = segments();
+        assertThat(segments).hasSize(1);
+        return segments.get(0);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(MemoryJournal.SEGMENT_PREFIX)).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package tasker.api.repositories.memory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import tasker.api.resources.PurgeJob;
+import tasker.api.resources.Task;
+import tasker.api.resources.User;
+import tasker.api.services.TaskerService;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Checks that a restarted storage holds what was committed before it stopped, from the latest snapshot and the
+ * journal written after it, and that it refuses to start from a damaged snapshot
+ */
+class MemorySnapshotsTest {
+
+    /** Constants */
+    public static final String USERNAME = "bob";
+
+    /** Variables */
+    @TempDir
+    private Path directory;
+
+    private Storage storage;
+
+
+    @AfterEach
+    void stop() throws Exception {
+        if (storage != null) {
+            storage.journal().close();
+        }
+    }
+
+    @Test
+    void restartRestoresSnapshotAndLaterChanges() throws Exception {
+        storage = start();
+        storage.users().insert(USERNAME, "{bcrypt}hash", "old@tasker", "Bob", "Smith");
+        Task kept = storage.tasks().save(new Task(null, "kept", 1, USERNAME));
+        Task deleted = storage.tasks().save(new Task(null, "deleted", 2, USERNAME));
+        Task updated = storage.tasks().save(new Task(null, "updated", 3, USERNAME));
+        storage.jobs().save(new PurgeJob("alice", 10, 1000));
+        storage.snapshots().snapshot();
+
+        storage.tasks().delete(deleted);
+        updated.setDescription("after the snapshot");
+        storage.tasks().save(updated);
+        storage.users().updateDetails(USERNAME, "new@tasker", "Bob", "Smith");
+        storage.jobs().delete(new PurgeJob("alice"));
+        restart();
+
+        assertThat(storage.tasks().findByUsername(USERNAME, TaskerService.TASK_ORDER))
+                .extracting(Task::getId, Task::getDescription)
+                .containsExactly(tuple(updated.getId(), "after the snapshot"), tuple(kept.getId(), "kept"));
+        assertThat(storage.users().findById(USERNAME)).get().extracting(User::getEmail).isEqualTo("new@tasker");
+        assertThat(storage.jobs().existsById("alice")).isFalse();
+        assertThat(storage.tasks().save(new Task(null, "next", 1, USERNAME)).getId()).isGreaterThan(updated.getId());
+    }
+
+    @Test
+    void snapshotReplacesOlderFiles() throws Exception {
+        storage = start();
+        storage.tasks().save(new Task(null, "first", 1, USERNAME));
+        storage.snapshots().snapshot();
+        storage.tasks().save(new Task(null, "second", 1, USERNAME));
+        storage.snapshots().snapshot();
+
+        assertThat(files(MemorySnapshots.SNAPSHOT_PREFIX)).hasSize(1);
+        assertThat(files(MemoryJournal.SEGMENT_PREFIX)).hasSize(1);
+
+        // Unchanged storage writes no new snapshot
+        Path snapshot = files(MemorySnapshots.SNAPSHOT_PREFIX).get(0);
+        storage.snapshots().snapshot();
+        assertThat(files(MemorySnapshots.SNAPSHOT_PREFIX)).containsExactly(snapshot);
+
+        restart();
+        assertThat(storage.tasks().findByUsername(USERNAME, TaskerService.TASK_ORDER)).hasSize(2);
+    }
+
+    @Test
+    void restartDeletesTemporarySnapshot() throws Exception {
+        Path temporary = directory.resolve(MemorySnapshots.SNAPSHOT_PREFIX + "00000000000000000009"
+                + MemorySnapshots.SNAPSHOT_SUFFIX + MemorySnapshots.TEMPORARY_SUFFIX);
+        Files.write(temporary, new byte[] {1, 2, 3});
+
+        storage = start();
+
+        assertThat(temporary).doesNotExist();
+    }
+
+    @Test
+    void restartRejectsSnapshotWithBadHeader() throws Exception {
+        storage = start();
+        storage.tasks().save(new Task(null, "task", 1, USERNAME));
+        storage.snapshots().snapshot();
+        storage.journal().close();
+        storage = null;
+
+        Path snapshot = files(MemorySnapshots.SNAPSHOT_PREFIX).get(0);
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES), 0);
+        }
+
+        assertThatThrownBy(this::start)
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("not a storage snapshot");
+    }
+
+    @Test
+    void restartRejectsTruncatedSnapshot() throws Exception {
+        storage = start();
+        storage.tasks().save(new Task(null, "task", 1, USERNAME));
+        storage.snapshots().snapshot();
+        storage.journal().close();
+        storage = null;
+
+        Path snapshot = files(MemorySnapshots.SNAPSHOT_PREFIX).get(0);
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        assertThatThrownBy(this::start)
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("corrupt");
+    }
+
+    private void restart() throws Exception {
+        storage.journal().close();
+        storage = start();
+    }
+
+    /**
+     * Wires the memory storage by hand, like the 'memory' profile does, and restores it from the directory
+     */
+    private Storage start() throws IOException {
+        MemoryJournal journal = new MemoryJournal(directory.toString(), Duration.ZERO);
+        Storage started = new Storage(journal, new MemoryTaskerRepository(), new MemoryUsersRepository(),
+                new MemoryPurgeJobRepository(), new MemorySnapshots());
+        ReflectionTestUtils.setField(started.tasks(), "journal", journal);
+        ReflectionTestUtils.setField(started.users(), "journal", journal);
+        ReflectionTestUtils.setField(started.jobs(), "journal", journal);
+        ReflectionTestUtils.setField(started.snapshots(), "journal", journal);
+        ReflectionTestUtils.setField(started.snapshots(), "taskerRepository", started.tasks());
+        ReflectionTestUtils.setField(started.snapshots(), "usersRepository", started.users());
+        ReflectionTestUtils.setField(started.snapshots(), "purgeJobRepository", started.jobs());
+
+        started.snapshots().restore();
+        return started;
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix)).sorted().toList();
+        }
+    }
+
+
+    private record Storage(MemoryJournal journal, MemoryTaskerRepository tasks, MemoryUsersRepository users,
+                           MemoryPurgeJobRepository jobs, MemorySnapshots snapshots) {}
+}
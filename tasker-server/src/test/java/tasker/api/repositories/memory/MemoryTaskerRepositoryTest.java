@@ -0,0 +1,165 @@
+package tasker.api.repositories.memory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import tasker.api.repositories.TaskerRepository;
+import tasker.api.resources.Task;
+import tasker.api.services.TaskerService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the in-memory task storage lists and pages tasks exactly like the database queries it stands in for,
+ * and that concurrent writes of a user never leave a task listed twice or missing
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("embedded")
+class MemoryTaskerRepositoryTest {
+
+    /** Constants */
+    public static final String USERNAME = "bob";
+    public static final String[] DESCRIPTIONS = {"apples", "bread", "bread", "milk", "milk 2", "eggs"};
+    public static final int TASKS = 60;
+    public static final int WRITERS = 8;
+    public static final int WRITES = 2000;
+
+    /** Variables */
+    @Autowired
+    private TaskerRepository databaseRepository;
+
+    private MemoryTaskerRepository memoryRepository;
+
+
+    @BeforeEach
+    void createMemoryRepository() {
+        memoryRepository = new MemoryTaskerRepository();
+        ReflectionTestUtils.setField(memoryRepository, "journal", new MemoryJournal("", Duration.ZERO));
+    }
+
+    @Test
+    void listingOrderMatchesDatabase() {
+        addToBoth(tasksWithTies());
+
+        assertThat(ids(memoryRepository.findByUsername(USERNAME, TaskerService.TASK_ORDER)))
+                .isEqualTo(ids(databaseRepository.findByUsername(USERNAME, TaskerService.TASK_ORDER)))
+                .hasSize(TASKS);
+        assertThat(ids(memoryRepository.findByUsername(USERNAME, TaskerService.TASK_ORDER, Limit.of(7))))
+                .isEqualTo(ids(databaseRepository.findByUsername(USERNAME, TaskerService.TASK_ORDER, Limit.of(7))));
+    }
+
+    @Test
+    void keysetPagesMatchDatabaseAfterEveryTask() {
+        addToBoth(tasksWithTies());
+
+        for (Task after : databaseRepository.findByUsername(USERNAME, TaskerService.TASK_ORDER)) {
+            assertThat(ids(memoryRepository.findByUsernameAfter(USERNAME, after.getPriority(), after.getDescription(), after.getId(), Limit.of(5))))
+                    .as("page after task %d", after.getId())
+                    .isEqualTo(ids(databaseRepository.findByUsernameAfter(USERNAME, after.getPriority(), after.getDescription(), after.getId(), Limit.of(5))));
+        }
+    }
+
+    @Test
+    void deleteChunkRemovesFirstListedTasks() {
+        addToBoth(tasksWithTies());
+        List<Long> listed = ids(memoryRepository.findByUsername(USERNAME, TaskerService.TASK_ORDER));
+
+        assertThat(memoryRepository.deleteChunkByUsername(USERNAME, 10)).isEqualTo(10);
+        assertThat(ids(memoryRepository.findByUsername(USERNAME, TaskerService.TASK_ORDER))).isEqualTo(listed.subList(10, TASKS));
+        assertThat(memoryRepository.findByIdAndUsername(listed.get(0), USERNAME)).isEmpty();
+    }
+
+    @Test
+    void concurrentWritesKeepEveryTaskListedOnce() throws Exception {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < TASKS; i++) {
+            tasks.add(memoryRepository.save(new Task(null, "task", 0, USERNAME)));
+        }
+
+        // Every writer moves the same tasks around the list, so writes of one task race with each other
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int writer = 0; writer < WRITERS; writer++) {
+            Random random = new Random(writer);
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < WRITES; i++) {
+                    Task task = tasks.get(random.nextInt(TASKS));
+                    memoryRepository.save(new Task(task.getId(), DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)], random.nextInt(3), USERNAME));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        executor.shutdown();
+
+        List<Task> listed = memoryRepository.findByUsername(USERNAME, TaskerService.TASK_ORDER);
+        assertThat(listed).hasSize(TASKS);
+        for (Task task : listed) {
+            Task stored = memoryRepository.findByIdAndUsername(task.getId(), USERNAME).orElseThrow();
+            assertThat(stored.getDescription()).isEqualTo(task.getDescription());
+            assertThat(stored.getPriority()).isEqualTo(task.getPriority());
+        }
+    }
+
+    @Test
+    void returnedTasksAreCopies() {
+        Task saved = memoryRepository.save(new Task(null, "original", 1, USERNAME));
+        saved.setDescription("changed by the caller");
+        memoryRepository.findByIdAndUsername(saved.getId(), USERNAME).orElseThrow().setPriority(9);
+
+        Task stored = memoryRepository.findByIdAndUsername(saved.getId(), USERNAME).orElseThrow();
+        assertThat(stored.getDescription()).isEqualTo("original");
+        assertThat(stored.getPriority()).isEqualTo(1);
+    }
+
+    /**
+     * Tasks sharing priorities and descriptions, so the order also depends on the ids
+     */
+    private static List<Task> tasksWithTies() {
+        Random random = new Random(42);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < TASKS; i++) {
+            tasks.add(new Task(null, DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)], random.nextInt(4) - 1, USERNAME));
+        }
+        tasks.add(new Task(null, "someone else's", 1, "alice"));
+        return tasks;
+    }
+
+    /**
+     * Stores the tasks in the database, then the same tasks with the same ids in memory
+     */
+    private void addToBoth(List<Task> tasks) {
+        Set<Long> ids = new HashSet<>();
+        for (Task task : databaseRepository.saveAll(tasks)) {
+            ids.add(task.getId());
+            memoryRepository.save(new Task(task.getId(), task.getDescription(), task.getPriority(), task.getUsername()));
+        }
+        assertThat(ids).hasSize(tasks.size());
+    }
+
+    private static List<Long> ids(List<Task> tasks) {
+        return tasks.stream().map(Task::getId).toList();
+    }
+}
@@ -0,0 +1,112 @@
+package tasker.api.repositories.memory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tasker.api.resources.Task;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the transactions of the 'memory' profile: they scope after-commit code like the database ones, make their
+ * changes durable by the time they commit, and undo nothing on rollback
+ */
+class MemoryTransactionManagerTest {
+
+    /** Constants */
+    public static final String USERNAME = "bob";
+
+    /** Variables */
+    @TempDir
+    private Path directory;
+
+    private MemoryJournal journal;
+    private MemoryTaskerRepository taskerRepository;
+    private TransactionTemplate transactionTemplate;
+
+
+    @BeforeEach
+    void start() throws Exception {
+        journal = new MemoryJournal(directory.toString(), Duration.ZERO);
+        journal.open(1);
+        taskerRepository = new MemoryTaskerRepository();
+        ReflectionTestUtils.setField(taskerRepository, "journal", journal);
+
+        MemoryTransactionManager transactionManager = new MemoryTransactionManager();
+        ReflectionTestUtils.setField(transactionManager, "journal", journal);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        journal.close();
+    }
+
+    @Test
+    void rollbackKeepsChanges() {
+        Task task = transactionTemplate.execute(status -> {
+            Task saved = taskerRepository.save(new Task(null, "kept", 1, USERNAME));
+            status.setRollbackOnly();
+            return saved;
+        });
+
+        assertThat(taskerRepository.findByIdAndUsername(task.getId(), USERNAME)).isPresent();
+    }
+
+    @Test
+    void afterCommitRunsOnceOutermostTransactionCommits() {
+        List<String> events = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(outer -> {
+            transactionTemplate.executeWithoutResult(inner -> TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    events.add("committed");
+                }
+            }));
+            events.add("inner returned");
+        });
+
+        assertThat(events).containsExactly("inner returned", "committed");
+    }
+
+    @Test
+    void afterCommitDoesNotRunOnRollback() {
+        List<String> events = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    events.add("committed");
+                }
+            });
+            status.setRollbackOnly();
+        });
+
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    void commitMakesChangesDurable() throws Exception {
+        Task task = transactionTemplate.execute(status -> {
+            Task first = taskerRepository.save(new Task(null, "first", 1, USERNAME));
+            taskerRepository.save(new Task(first.getId(), "second", 2, USERNAME));
+            return first;
+        });
+
+        List<JournalRecord> replayed = new ArrayList<>();
+        new MemoryJournal(directory.toString(), Duration.ZERO).replay(1, replayed::add);
+        assertThat(replayed).containsExactly(
+                new JournalRecord.TaskSaved(task.getId(), USERNAME, "first", 1),
+                new JournalRecord.TaskSaved(task.getId(), USERNAME, "second", 2));
+    }
+}
@@ -0,0 +1,33 @@
+package tasker.api.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that a running server keeps other servers off its database
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("embedded")
+class ServerLeaseTest {
+
+    /** Variables */
+    @Autowired
+    private ServerLease serverLease;
+
+
+    @Test
+    void otherServerCannotTakeHeldLease() {
+        assertThat(serverLease.tryAcquire("other", System.currentTimeMillis())).isFalse();
+    }
+
+    @Test
+    void holderRenewsLease() {
+        serverLease.renew();
+
+        assertThat(serverLease.tryAcquire("other", System.currentTimeMillis())).isFalse();
+    }
+}
@@ -0,0 +1,83 @@
+package tasker.api.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import tasker.api.repositories.PurgeJobRepository;
+import tasker.api.resources.PurgeJob;
+
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that purges remove every task of a deleted account a chunk at a time, and that their progress is only
+ * added to jobs that still exist, so a job another server finished is never stored again. The scheduled purge is
+ * left idle, so only the purges run by the tests touch the jobs
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"tasker.purge.chunk-size=10", "tasker.purge.interval=PT1H"})
+@ActiveProfiles("embedded")
+class TaskPurgerTest {
+
+    /** Constants */
+    public static final int TASKS = 25;
+
+    /** Variables */
+    @Autowired
+    private TaskPurger taskPurger;
+
+    @Autowired
+    private TaskerService taskerService;
+
+    @Autowired
+    private PurgeJobRepository purgeJobRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+
+    @Test
+    void purgeRemovesEveryTaskAndItsJob() throws Exception {
+        String username = "purged";
+        for (int i = 0; i < TASKS; i++) {
+            taskerService.add(username, "task " + i, 1);
+        }
+        purgeJobRepository.save(new PurgeJob(username));
+
+        taskPurger.purge();
+
+        assertThat(taskerService.getTaskList(username).tasks()).isEmpty();
+        assertThat(purgeJobRepository.existsById(username)).isFalse();
+    }
+
+    @Test
+    void progressAddedInPlace() {
+        String username = "progress";
+        purgeJobRepository.save(new PurgeJob(username, 5, 1L));
+
+        int updated = transactionTemplate.execute(status -> purgeJobRepository.addDeletedTasks(username, 10));
+
+        assertThat(updated).isEqualTo(1);
+        PurgeJob job = StreamSupport.stream(purgeJobRepository.findAll().spliterator(), false)
+                .filter(stored -> stored.getUsername().equals(username))
+                .findFirst().orElseThrow();
+        assertThat(job.getDeletedTasks()).isEqualTo(15);
+        assertThat(job.getRequestedAt()).isEqualTo(1L);
+        purgeJobRepository.delete(job);
+    }
+
+    @Test
+    void progressOfFinishedJobIsDropped() {
+        String username = "finished";
+        PurgeJob job = purgeJobRepository.save(new PurgeJob(username));
+        purgeJobRepository.delete(job);
+
+        int updated = transactionTemplate.execute(status -> purgeJobRepository.addDeletedTasks(username, 10));
+
+        assertThat(updated).isZero();
+        assertThat(purgeJobRepository.existsById(username)).isFalse();
+    }
+}
@@ -0,0 +1,155 @@
+package tasker.api.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import tasker.api.exceptions.ResyncRequiredException;
+import tasker.api.exceptions.TaskDoesNotExistException;
+import tasker.api.exceptions.TaskListChangedException;
+import tasker.api.models.TaskChange;
+import tasker.api.models.TaskChanges;
+import tasker.api.models.TaskModel;
+import tasker.api.models.TaskMutation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Checks the change feed and the conditional writes it pairs with: the feed gives each changed task's latest state or
+ * a tombstone, a write expecting a stale version changes nothing, and of concurrent writes expecting the same version
+ * only one commits. A client holding the version a write expected can still ask for the changes after it, whether the
+ * write committed or not, and even when the user had no retained changes before the write
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("embedded")
+class TaskerServiceTest {
+
+    /** Constants */
+    public static final int WRITERS = 6;
+
+    /** Variables */
+    @Autowired
+    private TaskerService taskerService;
+
+    @Autowired
+    private TaskChangeLog taskChangeLog;
+
+
+    @Test
+    void changesSinceIfMatchVersionIncludeTheWrite() throws Exception {
+        String username = "conditional";
+        TaskMutation added = taskerService.add(username, "first", 1);
+        taskChangeLog.reset(username); // No retained changes, like after a restart or a compaction
+
+        long version = taskerService.getListVersion(username);
+        TaskMutation updated = taskerService.update(username, new TaskModel(added.getTask().getId(), "second", 2), version);
+
+        TaskChanges changes = taskerService.getChanges(username, version);
+        assertThat(changes.revision()).isEqualTo(updated.getVersion());
+        assertThat(changes.changes()).extracting(TaskChange::id).containsExactly(added.getTask().getId());
+        assertThat(changes.changes().get(0).task().getDescription()).isEqualTo("second");
+    }
+
+    @Test
+    void changesSinceIfMatchVersionSurviveFailedWrite() throws Exception {
+        String username = "failed";
+        taskerService.add(username, "first", 1);
+        taskChangeLog.reset(username);
+
+        long version = taskerService.getListVersion(username);
+        assertThatThrownBy(() -> taskerService.delete(username, Long.MAX_VALUE, version))
+                .isInstanceOf(TaskDoesNotExistException.class);
+
+        TaskChanges changes = taskerService.getChanges(username, version);
+        assertThat(changes.revision()).isEqualTo(taskerService.getListVersion(username)).isGreaterThan(version);
+        assertThat(changes.changes()).isEmpty();
+    }
+
+    @Test
+    void changesGiveLatestStateOrTombstoneOncePerTask() throws Exception {
+        String username = "feed";
+        TaskMutation first = taskerService.add(username, "first", 1);
+        TaskMutation second = taskerService.add(username, "second", 1);
+        long since = taskerService.getListVersion(username);
+
+        taskerService.update(username, new TaskModel(first.getTask().getId(), "first again", 1), null);
+        taskerService.delete(username, second.getTask().getId(), null);
+        TaskMutation last = taskerService.update(username, new TaskModel(first.getTask().getId(), "first at last", 3), null);
+
+        TaskChanges changes = taskerService.getChanges(username, since);
+        assertThat(changes.revision()).isEqualTo(last.getVersion());
+        assertThat(changes.changes()).extracting(TaskChange::id, TaskChange::deleted)
+                .containsExactly(tuple(second.getTask().getId(), true), tuple(first.getTask().getId(), false));
+        assertThat(changes.changes().get(1).revision()).isEqualTo(last.getVersion());
+        assertThat(changes.changes().get(1).task().getDescription()).isEqualTo("first at last");
+
+        assertThat(taskerService.getChanges(username, last.getVersion()).changes()).isEmpty();
+    }
+
+    @Test
+    void changesFromUnknownRevisionRequireResync() throws Exception {
+        String username = "resync";
+        taskerService.add(username, "first", 1);
+        long current = taskerService.getListVersion(username);
+
+        assertThatThrownBy(() -> taskerService.getChanges(username, current + 1))
+                .isInstanceOf(ResyncRequiredException.class);
+    }
+
+    @Test
+    void staleExpectedVersionChangesNothing() throws Exception {
+        String username = "stale";
+        TaskMutation added = taskerService.add(username, "first", 1);
+        long stale = taskerService.getListVersion(username);
+        taskerService.add(username, "second", 1);
+
+        assertThatThrownBy(() -> taskerService.update(username, new TaskModel(added.getTask().getId(), "lost", 2), stale))
+                .isInstanceOf(TaskListChangedException.class);
+        assertThat(taskerService.getTask(username, added.getTask().getId()).getDescription()).isEqualTo("first");
+    }
+
+    @Test
+    void concurrentWritesExpectingSameVersionCommitOnce() throws Exception {
+        String username = "cas";
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < WRITERS; i++) {
+            ids.add(taskerService.add(username, "task " + i, 1).getTask().getId());
+        }
+        long version = taskerService.getListVersion(username);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (long id : ids) {
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    taskerService.update(username, new TaskModel(id, "updated", 2), version);
+                    return true;
+                } catch (TaskListChangedException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+
+        int committed = 0;
+        for (Future<Boolean> result : results) {
+            committed += result.get() ? 1 : 0;
+        }
+        executor.shutdown();
+
+        assertThat(committed).isEqualTo(1);
+        assertThat(taskerService.getAllTasks(username)).filteredOn(task -> task.getDescription().equals("updated")).hasSize(1);
+        assertThat(taskerService.getChanges(username, version).changes()).hasSize(1);
+    }
+}
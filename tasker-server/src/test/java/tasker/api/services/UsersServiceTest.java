@@ -0,0 +1,105 @@
+package tasker.api.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import tasker.api.exceptions.UserAlreadyExistsException;
+import tasker.api.exceptions.UserDoesNotExistException;
+import tasker.api.models.UserModel;
+import tasker.api.repositories.UsersRepository;
+import tasker.api.resources.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that user writes never merge a stale copy of the user: concurrent registrations of a username keep the first
+ * account, and password rehashes and detail updates only change their own columns of a user that still exists
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("embedded")
+class UsersServiceTest {
+
+    /** Constants */
+    public static final String PASSWORD = "secret1";
+    public static final int REGISTRATIONS = 6;
+
+    /** Variables */
+    @Autowired
+    private UsersService usersService;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+
+    @Test
+    void concurrentRegistrationsKeepTheFirstAccount() throws Exception {
+        String username = "race";
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(REGISTRATIONS);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < REGISTRATIONS; i++) {
+            String email = "user" + i + "@tasker";
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    usersService.add(new UserModel(username, PASSWORD, email, "First", "Last"));
+                    return true;
+                } catch (UserAlreadyExistsException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+
+        List<String> winners = new ArrayList<>();
+        for (int i = 0; i < REGISTRATIONS; i++) {
+            if (results.get(i).get()) {
+                winners.add("user" + i + "@tasker");
+            }
+        }
+        executor.shutdown();
+
+        assertThat(winners).hasSize(1);
+        assertThat(usersRepository.findById(username)).get().extracting(User::getEmail).isEqualTo(winners.get(0));
+    }
+
+    @Test
+    void rehashKeepsConcurrentDetailsUpdate() throws Exception {
+        String username = "rehash";
+        usersRepository.insert(username, PASSWORD, "old@tasker", "Old", "Name"); // Legacy plain text password
+        User stale = usersRepository.findById(username).orElseThrow();
+
+        usersRepository.updateDetails(username, "new@tasker", "New", "Name");
+        assertThat(usersService.authenticateUser(username, PASSWORD)).isTrue();
+
+        User user = usersRepository.findById(username).orElseThrow();
+        assertThat(user.getEmail()).isEqualTo("new@tasker");
+        assertThat(user.getPassword()).startsWith("{bcrypt}");
+
+        // A rehash of a hash that changed meanwhile is dropped
+        assertThat(usersRepository.updatePassword(username, stale.getPassword(), "{bcrypt}stale")).isZero();
+        assertThat(usersRepository.findById(username)).get().extracting(User::getPassword).isEqualTo(user.getPassword());
+    }
+
+    @Test
+    void updateDoesNotRecreateDeletedUser() throws Exception {
+        String username = "deleted";
+        usersService.add(new UserModel(username, PASSWORD, "deleted@tasker", "First", "Last"));
+        usersService.delete(username);
+
+        assertThat(usersRepository.updateDetails(username, "back@tasker", "First", "Last")).isZero();
+        assertThat(usersRepository.updatePassword(username, PASSWORD, "{bcrypt}back")).isZero();
+        assertThat(usersRepository.findById(username)).isEmpty();
+        assertThatThrownBy(() -> usersService.update(new UserModel(username, PASSWORD, "again@tasker", "First", "Last")))
+                .isInstanceOf(UserDoesNotExistException.class);
+    }
+}
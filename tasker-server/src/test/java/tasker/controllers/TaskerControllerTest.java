@@ -0,0 +1,156 @@
+package tasker.controllers;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import tasker.ResponseEncodings;
+import tasker.api.services.TaskerService;
+import tasker.api.utils.Utils;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks the task list's conditional requests: the ETags it sends, one per encoding, the 'If-None-Match' headers
+ * they answer with 304, and the 'If-Match' headers it accepts on writes. Cross-origin clients must be able to read
+ * the ETags and the applied preferences
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("embedded")
+class TaskerControllerTest {
+
+    /** Constants */
+    public static final String USERNAME = "etags";
+
+    /** Variables */
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TaskerService taskerService;
+
+    @Value("${jwt.secret}")
+    private String tokenSecret;
+
+    private String token;
+
+
+    @BeforeEach
+    void authenticate() {
+        token = Utils.createAuthToken(USERNAME, tokenSecret);
+    }
+
+    @Test
+    void ifMatchAcceptsListOfETags() throws Exception {
+        long id = addTask();
+        String current = "\"" + taskerService.getListVersion(USERNAME) + "\"";
+
+        deleteTask(id, "\"1\", " + current).andExpect(status().isOk());
+    }
+
+    @Test
+    void ifMatchRejectsListWithoutCurrentETag() throws Exception {
+        long id = addTask();
+        long version = taskerService.getListVersion(USERNAME);
+
+        deleteTask(id, "\"1\", \"" + (version - 1) + "\"").andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void ifMatchRejectsWeakETag() throws Exception {
+        long id = addTask();
+
+        deleteTask(id, "W/\"" + taskerService.getListVersion(USERNAME) + "\"").andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void everyEncodingHasItsOwnETag() throws Exception {
+        addTask();
+        long version = taskerService.getListVersion(USERNAME);
+
+        listTasks(MediaType.APPLICATION_JSON_VALUE, null, false)
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + version + "\""));
+        listTasks(ResponseEncodings.SMILE.toString(), null, false)
+                .andExpect(content().contentTypeCompatibleWith(ResponseEncodings.SMILE))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + version + TaskerController.SMILE_ETAG_SUFFIX + "\""));
+        listTasks(MediaType.APPLICATION_CBOR_VALUE, null, false)
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + version + TaskerController.CBOR_ETAG_SUFFIX + "\""));
+        listTasks(MediaType.APPLICATION_NDJSON_VALUE, null, false)
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + version + TaskerController.NDJSON_ETAG_SUFFIX + "\""));
+        listTasks(MediaType.APPLICATION_JSON_VALUE, null, true)
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + version + TaskerController.STREAM_ETAG_SUFFIX + "\""));
+    }
+
+    @Test
+    void ifNoneMatchOnlyMatchesSameEncoding() throws Exception {
+        addTask();
+        String smileTag = "\"" + taskerService.getListVersion(USERNAME) + TaskerController.SMILE_ETAG_SUFFIX + "\"";
+
+        listTasks(MediaType.APPLICATION_JSON_VALUE, smileTag, false).andExpect(status().isOk());
+        listTasks(ResponseEncodings.SMILE.toString(), smileTag, false)
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, smileTag));
+        listTasks("application/json;q=0.5, " + ResponseEncodings.SMILE, "W/" + smileTag, false).andExpect(status().isNotModified());
+    }
+
+    @Test
+    void ifMatchAcceptsETagOfAnyEncoding() throws Exception {
+        long id = addTask();
+
+        deleteTask(id, "\"" + taskerService.getListVersion(USERNAME) + TaskerController.CBOR_ETAG_SUFFIX + "\"").andExpect(status().isOk());
+    }
+
+    @Test
+    void crossOriginMinimalWriteExposesItsHeaders() throws Exception {
+        mockMvc.perform(post("/tasker/{username}/add", USERNAME)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .header(HttpHeaders.ORIGIN, "https://app.tasker.example")
+                        .header(TaskerController.PREFER_HEADER, TaskerController.RETURN_MINIMAL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\": \"task\", \"priority\": 1}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(TaskerController.PREFERENCE_APPLIED_HEADER, TaskerController.RETURN_MINIMAL))
+                .andExpect(header().stringValues(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS,
+                        Matchers.hasItems(Matchers.containsString(HttpHeaders.ETAG), Matchers.containsString(TaskerController.PREFERENCE_APPLIED_HEADER))));
+    }
+
+    private long addTask() throws Exception {
+        return taskerService.add(USERNAME, "task", 1).getTask().getId();
+    }
+
+    private ResultActions listTasks(String accept, String ifNoneMatch, boolean stream) throws Exception {
+        MockHttpServletRequestBuilder request = get("/tasker/{username}/tasks", USERNAME)
+                .header(HttpHeaders.AUTHORIZATION, token)
+                .header(HttpHeaders.ACCEPT, accept);
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        if (stream) {
+            request.param("stream", "true");
+        }
+        return mockMvc.perform(request);
+    }
+
+    private ResultActions deleteTask(long id, String ifMatch) throws Exception {
+        return mockMvc.perform(delete("/tasker/{username}/delete", USERNAME)
+                .param("id", String.valueOf(id))
+                .header(HttpHeaders.AUTHORIZATION, token)
+                .header(HttpHeaders.IF_MATCH, ifMatch));
+    }
+}
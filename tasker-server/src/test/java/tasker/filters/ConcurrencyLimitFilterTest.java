@@ -0,0 +1,103 @@
+package tasker.filters;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import tasker.controllers.UsersController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that requests over the concurrency limit are shed with 503, that reads and writes are limited apart, and
+ * that password requests are left to the hashing pool. Each limit allows a single request in flight, and a request
+ * still in its handler is simulated by performing the next one from inside it
+ */
+class ConcurrencyLimitFilterTest {
+
+    /** Variables */
+    private ConcurrencyLimitFilter filter;
+
+
+    @BeforeEach
+    void configure() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("tasker.concurrency.enabled", "true")
+                .withProperty("tasker.concurrency.tolerance", "1.5")
+                .withProperty("tasker.concurrency.smoothing", "0.2")
+                .withProperty("tasker.concurrency.long-window", "600");
+        for (String kind : new String[] {"reads", "writes"}) {
+            environment.setProperty("tasker.concurrency." + kind + ".initial-limit", "1");
+            environment.setProperty("tasker.concurrency." + kind + ".min-limit", "1");
+            environment.setProperty("tasker.concurrency." + kind + ".max-limit", "1");
+        }
+
+        filter = new ConcurrencyLimitFilter(environment, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(filter, "objectMapper", new ObjectMapper());
+    }
+
+    @Test
+    void requestOverLimitIsShed() throws Exception {
+        List<MockHttpServletResponse> nested = new ArrayList<>();
+        MockHttpServletResponse outer = perform("GET", "/tasker/bob/tasks", () -> nested.add(perform("GET", "/tasker/bob/tasks", null)));
+
+        assertThat(outer.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(nested.get(0).getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+        assertThat(nested.get(0).getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo(ConcurrencyLimitFilter.RETRY_AFTER_SECONDS);
+        assertThat(nested.get(0).getContentAsString()).contains(UsersController.SERVER_BUSY_MSG);
+
+        // The permit is back once the first request is over
+        assertThat(perform("GET", "/tasker/bob/tasks", null).getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
+    @Test
+    void readsAndWritesLimitedApart() throws Exception {
+        List<MockHttpServletResponse> nested = new ArrayList<>();
+        perform("GET", "/tasker/bob/tasks", () -> nested.add(perform("POST", "/tasker/bob/add", null)));
+
+        assertThat(nested.get(0).getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
+    @Test
+    void passwordRequestsAreNotLimited() throws Exception {
+        List<MockHttpServletResponse> nested = new ArrayList<>();
+        perform("POST", "/tasker/bob/add", () -> nested.add(perform("PUT", RateLimitFilter.UPDATE_PATH + "bob", null)));
+
+        assertThat(nested.get(0).getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
+    private MockHttpServletResponse perform(String method, String path, Handler handler) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                if (handler != null) {
+                    try {
+                        handler.handle();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        });
+        return response;
+    }
+
+
+    private interface Handler {
+        void handle() throws Exception;
+    }
+}
@@ -0,0 +1,81 @@
+package tasker.filters;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks how the concurrency limit follows the latency: it holds its permits to the limit, grows while fully used at
+ * a steady latency, shrinks down to its minimum while the latency climbs, and ignores samples of a light load
+ */
+class ConcurrencyLimiterTest {
+
+    /** Constants */
+    public static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    public static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    public static final int SAMPLES = 500;
+
+
+    @Test
+    void permitsHeldToLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 2, 10, 1.5, 0.2, 600);
+        for (int i = 0; i < 4; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        limiter.releaseWithoutSample();
+        assertThat(limiter.getInFlight()).isEqualTo(3);
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void steadyLatencyAtFullUseGrowsToMax() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 2, 40, 1.5, 0.2, 600);
+        for (int i = 0; i < SAMPLES; i++) {
+            fillAndRelease(limiter, FAST_NANOS);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(40);
+    }
+
+    @Test
+    void risingLatencyShrinksToMin() {
+        // A long window, so the long-term latency stays near the fast one while the slow samples last
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(40, 5, 100, 1.5, 0.2, 10_000);
+        for (int i = 0; i < 20; i++) {
+            fillAndRelease(limiter, FAST_NANOS);
+        }
+        int before = limiter.getLimit();
+
+        fillAndRelease(limiter, SLOW_NANOS);
+        assertThat(limiter.getLimit()).isLessThan(before);
+
+        for (int i = 0; i < SAMPLES; i++) {
+            fillAndRelease(limiter, SLOW_NANOS);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void lightLoadKeepsLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 2, 100, 1.5, 0.2, 600);
+        for (int i = 0; i < SAMPLES; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+            limiter.release(i % 2 == 0 ? FAST_NANOS : SLOW_NANOS);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(20);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    /**
+     * Takes every free permit, then returns one with a latency sample, like a fully used server
+     */
+    private static void fillAndRelease(ConcurrencyLimiter limiter, long rttNanos) {
+        while (limiter.tryAcquire());
+        limiter.release(rttNanos);
+    }
+}
@@ -0,0 +1,125 @@
+package tasker.filters;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the token buckets of the rate limits: each user and client gets its group's capacity, a rejected request
+ * spends no token of its other buckets, and rejections tell when to retry. Refills are slow enough to never happen
+ * while a test runs
+ */
+class RateLimitFilterTest {
+
+    /** Constants */
+    public static final String CLIENT_IP = "10.0.0.1";
+    public static final String TASKS_PATH = "/tasker/%s/tasks";
+
+    /** Variables */
+    private MockEnvironment environment;
+    private RateLimitFilter filter;
+
+
+    @BeforeEach
+    void configure() {
+        environment = new MockEnvironment()
+                .withProperty("tasker.rate-limits.enabled", "true")
+                .withProperty("tasker.rate-limits.max-keys", "1000");
+        limit(RateLimitFilter.Group.LOGIN, 2);
+        limit(RateLimitFilter.Group.READS, 2);
+        limit(RateLimitFilter.Group.WRITES, 2);
+        limit(RateLimitFilter.Group.CLIENTS, 5);
+        filter = createFilter();
+    }
+
+    @Test
+    void userReadsLimitedToCapacity() throws Exception {
+        assertThat(read("bob").getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(read("bob").getStatus()).isEqualTo(HttpStatus.OK.value());
+
+        MockHttpServletResponse rejected = read("bob");
+        assertThat(rejected.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(Long.parseLong(rejected.getHeader(HttpHeaders.RETRY_AFTER))).isPositive();
+        assertThat(rejected.getContentAsString()).contains(RateLimitFilter.TOO_MANY_REQUESTS_MSG);
+
+        assertThat(read("alice").getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
+    @Test
+    void rejectedRequestSpendsNoClientToken() throws Exception {
+        read("bob");
+        read("bob");
+        for (int i = 0; i < 3; i++) {
+            assertThat(read("bob").getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        }
+
+        // The rejections above left the client's bucket with 3 of its 5 tokens
+        assertThat(read("alice").getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(read("alice").getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(read("carol").getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(read("dave").getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+    }
+
+    @Test
+    void loginsLimitedPerClientIp() throws Exception {
+        assertThat(login(CLIENT_IP).getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(login(CLIENT_IP).getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(login(CLIENT_IP).getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+
+        assertThat(login("10.0.0.2").getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(read("bob").getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
+    @Test
+    void disabledLimitsLetEverythingThrough() throws Exception {
+        environment.setProperty("tasker.rate-limits.enabled", "false");
+        filter = createFilter();
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(read("bob").getStatus()).isEqualTo(HttpStatus.OK.value());
+        }
+    }
+
+    private void limit(RateLimitFilter.Group group, int capacity) {
+        String property = "tasker.rate-limits." + group.name().toLowerCase(Locale.ROOT);
+        environment.setProperty(property + ".capacity", String.valueOf(capacity));
+        environment.setProperty(property + ".per-second", "0.001");
+    }
+
+    private RateLimitFilter createFilter() {
+        RateLimitFilter created = new RateLimitFilter(environment, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(created, "objectMapper", new ObjectMapper());
+        return created;
+    }
+
+    private MockHttpServletResponse read(String username) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", String.format(TASKS_PATH, username));
+        request.setRemoteAddr(CLIENT_IP);
+        request.setAttribute(AuthenticationFilter.USERNAME_ATTRIBUTE, username);
+        return perform(request);
+    }
+
+    private MockHttpServletResponse login(String clientIp) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", RateLimitFilter.LOGIN_PATH);
+        request.setRemoteAddr(clientIp);
+        return perform(request);
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
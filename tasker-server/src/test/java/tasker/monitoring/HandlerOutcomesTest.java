@@ -0,0 +1,140 @@
+package tasker.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.method.HandlerMethod;
+import tasker.api.services.TaskerService;
+import tasker.api.utils.Utils;
+import tasker.controllers.TaskerController;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that every kind of handler response is counted once: messages by their constant, and bodiless, streamed and
+ * event stream responses by their status. The counters are shared with the other tests' requests, so only their
+ * increments are checked
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("embedded")
+class HandlerOutcomesTest {
+
+    /** Constants */
+    public static final String USERNAME = "outcomes";
+
+    /** Variables */
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TaskerService taskerService;
+
+    @Autowired
+    private TaskerController taskerController;
+
+    @Autowired
+    private HandlerOutcomes handlerOutcomes;
+
+    @Value("${jwt.secret}")
+    private String tokenSecret;
+
+    private String token;
+
+
+    @BeforeEach
+    void authenticate() {
+        token = Utils.createAuthToken(USERNAME, tokenSecret);
+    }
+
+    @Test
+    void messageCountedByConstant() throws Exception {
+        double before = count("TaskerController.remove", "task_does_not_exist");
+
+        mockMvc.perform(delete("/tasker/{username}/delete", USERNAME)
+                        .param("id", "-1")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isNotFound());
+
+        assertThat(count("TaskerController.remove", "task_does_not_exist")).isEqualTo(before + 1);
+    }
+
+    @Test
+    void bodilessResponsesCountedByStatus() throws Exception {
+        taskerService.add(USERNAME, "task", 1);
+        String eTag = "\"" + taskerService.getListVersion(USERNAME) + "\"";
+        double notModified = count("TaskerController.tasks", "not_modified");
+        double noContent = count("UsersController.validateToken", "no_content");
+
+        mockMvc.perform(get("/tasker/{username}/tasks", USERNAME)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/users/validate/{username}", USERNAME)
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isNoContent());
+
+        assertThat(count("TaskerController.tasks", "not_modified")).isEqualTo(notModified + 1);
+        assertThat(count("UsersController.validateToken", "no_content")).isEqualTo(noContent + 1);
+    }
+
+    @Test
+    void streamedListCountedOnceWritten() throws Exception {
+        taskerService.add(USERNAME, "task", 1);
+        double before = count("TaskerController.tasksAsLines", "ok");
+
+        MvcResult started = mockMvc.perform(get("/tasker/{username}/tasks", USERNAME)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_NDJSON_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(count("TaskerController.tasksAsLines", "ok")).isEqualTo(before);
+
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+        assertThat(count("TaskerController.tasksAsLines", "ok")).isEqualTo(before + 1);
+    }
+
+    /**
+     * Mock requests start asynchronous processing without their response, which the event stream writes to, so the
+     * stream's opening is handed to the counter directly
+     */
+    @Test
+    void eventStreamCountedWhenOpened() throws Exception {
+        HandlerMethod events = new HandlerMethod(taskerController, "events", String.class, HttpServletRequest.class, HttpServletResponse.class);
+        double before = count("TaskerController.events", "ok");
+
+        handlerOutcomes.afterConcurrentHandlingStarted(new MockHttpServletRequest(), new MockHttpServletResponse(), events);
+
+        assertThat(count("TaskerController.events", "ok")).isEqualTo(before + 1);
+    }
+
+    private double count(String handler, String outcome) {
+        Counter counter = meterRegistry.find(HandlerOutcomes.OUTCOMES_METRIC)
+                .tag("handler", handler)
+                .tag("outcome", outcome)
+                .counter();
+        return counter == null ? 0 : counter.count();
+    }
+}